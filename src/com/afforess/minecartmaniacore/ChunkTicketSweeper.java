@@ -0,0 +1,15 @@
+package com.afforess.minecartmaniacore;
+
+/**
+ * Keeps the chunk tickets of minecarts in step with the world, run by the MinecartManiaClock each tick.
+ * The sweep itself only runs once a second, see MinecartManiaWorld.sweepChunkTickets.
+ * @author Afforess
+ */
+public class ChunkTicketSweeper implements Runnable {
+
+	public void run() {
+		if (MinecartManiaClock.getTick() % MinecartManiaClock.TICKS_PER_SECOND == 0) {
+			MinecartManiaWorld.sweepChunkTickets();
+		}
+	}
+}
@@ -6,9 +6,11 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.HashMap;
 
 import org.bukkit.plugin.PluginDescriptionFile;
 
+import com.afforess.minecartmaniacore.config.CoreConfiguration;
 import com.afforess.minecartmaniacore.config.MinecartManiaFlatFile;
 import com.afforess.minecartmaniacore.config.Setting;
 import com.afforess.minecartmaniacore.config.SettingList;
@@ -40,7 +42,12 @@ public class Configuration {
 		/*else if (invalidFile(options)) {
 			updateFile(options);
 		}*/
-		ReadFile(options, desc, config);
+		HashMap<String, Object> values = ReadFile(options, desc, config);
+		//Stored all at once, and the typed configuration published once, so no half read configuration is ever seen
+		MinecartManiaWorld.putConfigurationValues(values);
+		if (config == SettingList.config) {
+			MinecartManiaWorld.setCoreConfiguration(new CoreConfiguration(values));
+		}
 	}
 
 	private static boolean invalidFile(File file, Setting config[]) {
@@ -102,8 +109,9 @@ public class Configuration {
 		}
 	}
 
-	private static void ReadFile(File file, PluginDescriptionFile desc, Setting[] config)
+	private static HashMap<String, Object> ReadFile(File file, PluginDescriptionFile desc, Setting[] config)
 	{
+		HashMap<String, Object> values = new HashMap<String, Object>();
 		try {
 			for (int i = 0; i < config.length; i++) {
 				String value = MinecartManiaFlatFile.getValueFromSetting(
@@ -112,28 +120,28 @@ public class Configuration {
 						config[i].getValue().toString());
 				//Attempt to parse the value as boolean
 				if (value.contains("true")) {
-					MinecartManiaWorld.setConfigurationValue(config[i].getName(),
+					values.put(config[i].getName(),
 							Boolean.TRUE);
 				}
 				else if (value.contains("false")) {
-					MinecartManiaWorld.setConfigurationValue(config[i].getName(),
+					values.put(config[i].getName(),
 							Boolean.FALSE);
 				}
 				//Attempt to parse the value as a double or integer
 				else if (!StringUtils.getNumber(value).isEmpty()) {
 					Double d = Double.valueOf(StringUtils.getNumber(value));
 					if (d.intValue() == d) {
-						MinecartManiaWorld.setConfigurationValue(config[i].getName(),
+						values.put(config[i].getName(),
 								new Integer(d.intValue()));
 					}
 					else {
-						MinecartManiaWorld.setConfigurationValue(config[i].getName(),
+						values.put(config[i].getName(),
 								d);
 					}
 				}
 				//Fallback on string
 				else {
-					MinecartManiaWorld.setConfigurationValue(config[i].getName(),
+					values.put(config[i].getName(),
 							value);
 				}
 			}
@@ -143,6 +151,7 @@ public class Configuration {
 			MinecartManiaCore.log.severe("Failed to read " + desc.getName() +" settings!");
 			exception.printStackTrace();
 		}
+		return values;
 	}
 
 
@@ -0,0 +1,25 @@
+package com.afforess.minecartmaniacore;
+
+/**
+ * A block that affects minecarts that pass over it, like a booster or a catcher block.
+ * Control blocks are registered by block id with the ControlBlockRegistry.
+ * @author Afforess
+ */
+public interface ControlBlock {
+	
+	/**
+	 * Actions are exclusive. A control block that is an action is skipped if another action was already taken during the same update.
+	 * Control blocks that are not actions (boosters, brakes) always run.
+	 * @return true if this control block is an action
+	 */
+	public boolean isAction();
+	
+	/**
+	 * Executes this control block on the given minecart
+	 * @param minecart passing over this control block
+	 * @param powered whether the control block, or the track above it, is powered by redstone
+	 * @return true if an action was taken
+	 */
+	public boolean execute(MinecartManiaMinecart minecart, boolean powered);
+
+}
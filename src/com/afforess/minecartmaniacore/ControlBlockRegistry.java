@@ -0,0 +1,158 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.ArrayList;
+
+/**
+ * Maps block type id's to the control blocks that minecarts passing over them should execute.
+ * The built in control blocks are read from the configuration, other plugins may register their own.
+ * @author Afforess
+ */
+public class ControlBlockRegistry {
+	private static volatile ControlBlock[][] controlBlocks = new ControlBlock[0][];
+	private static final ArrayList<Integer> registeredIds = new ArrayList<Integer>();
+	private static final ArrayList<ControlBlock> registeredBlocks = new ArrayList<ControlBlock>();
+	
+	public static final ControlBlock HIGH_SPEED_BOOSTER = new ControlBlock() {
+		public boolean isAction() { return false; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			return !powered && minecart.boost(MinecartManiaWorld.getHighSpeedBoosterBlockMultiplier());
+		}
+	};
+	
+	public static final ControlBlock LOW_SPEED_BOOSTER = new ControlBlock() {
+		public boolean isAction() { return false; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			return !powered && minecart.boost(MinecartManiaWorld.getLowSpeedBoosterBlockMultiplier());
+		}
+	};
+	
+	public static final ControlBlock HIGH_SPEED_BRAKE = new ControlBlock() {
+		public boolean isAction() { return false; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			return !powered && minecart.brake(MinecartManiaWorld.getHighSpeedBrakeBlockDivisor());
+		}
+	};
+	
+	public static final ControlBlock LOW_SPEED_BRAKE = new ControlBlock() {
+		public boolean isAction() { return false; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			return !powered && minecart.brake(MinecartManiaWorld.getLowSpeedBrakeBlockDivisor());
+		}
+	};
+	
+	public static final ControlBlock REVERSE = new ControlBlock() {
+		public boolean isAction() { return true; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			if (!powered) {
+				minecart.reverse();
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	public static final ControlBlock CATCHER = new ControlBlock() {
+		public boolean isAction() { return true; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			if (!powered) {
+				minecart.stopCart();
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	public static final ControlBlock EJECTOR = new ControlBlock() {
+		public boolean isAction() { return true; }
+		public boolean execute(MinecartManiaMinecart minecart, boolean powered) {
+			return !powered && minecart.eject();
+		}
+	};
+	
+	/**
+	 ** Returns the control blocks registered for the given block type id, in the order they should be executed, or null if there are none
+	 ** @param the block type id
+	 **/
+	public static ControlBlock[] getControlBlocks(int id) {
+		ControlBlock[][] table = controlBlocks;
+		if (id < 0 || id >= table.length) {
+			return null;
+		}
+		return table[id];
+	}
+	
+	/**
+	 ** Registers a control block for the given block type id. Control blocks registered by plugins run after the built in control blocks.
+	 ** @param the block type id
+	 ** @param the control block
+	 **/
+	public static synchronized void register(int id, ControlBlock block) {
+		if (id < 0) {
+			throw new IllegalArgumentException();
+		}
+		registeredIds.add(id);
+		registeredBlocks.add(block);
+		rebuild();
+	}
+	
+	/**
+	 ** Removes every registration of the given control block
+	 ** @param the control block
+	 **/
+	public static synchronized void unregister(ControlBlock block) {
+		for (int i = registeredBlocks.size() - 1; i >= 0; i--) {
+			if (registeredBlocks.get(i) == block) {
+				registeredIds.remove(i);
+				registeredBlocks.remove(i);
+			}
+		}
+		rebuild();
+	}
+	
+	/**
+	 ** Rebuilds the table from the configuration and the registered control blocks. Called by MinecartManiaWorld.setCoreConfiguration whenever a new configuration is published.
+	 **/
+	public static synchronized void rebuild() {
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		ArrayList<ControlBlock> blocks = new ArrayList<ControlBlock>();
+		//Order matches the order the control blocks were historically checked in
+		add(ids, blocks, MinecartManiaWorld.getHighSpeedBoosterBlockId(), HIGH_SPEED_BOOSTER);
+		add(ids, blocks, MinecartManiaWorld.getLowSpeedBoosterBlockId(), LOW_SPEED_BOOSTER);
+		add(ids, blocks, MinecartManiaWorld.getHighSpeedBrakeBlockId(), HIGH_SPEED_BRAKE);
+		add(ids, blocks, MinecartManiaWorld.getLowSpeedBrakeBlockId(), LOW_SPEED_BRAKE);
+		add(ids, blocks, MinecartManiaWorld.getReverseBlockId(), REVERSE);
+		add(ids, blocks, MinecartManiaWorld.getCatcherBlockId(), CATCHER);
+		add(ids, blocks, MinecartManiaWorld.getEjectorBlockId(), EJECTOR);
+		for (int i = 0; i < registeredBlocks.size(); i++) {
+			add(ids, blocks, registeredIds.get(i), registeredBlocks.get(i));
+		}
+		
+		int max = -1;
+		for (int id : ids) {
+			max = Math.max(max, id);
+		}
+		ControlBlock[][] table = new ControlBlock[max + 1][];
+		for (int i = 0; i < ids.size(); i++) {
+			int id = ids.get(i);
+			ControlBlock[] previous = table[id];
+			if (previous == null) {
+				table[id] = new ControlBlock[] { blocks.get(i) };
+			}
+			else {
+				ControlBlock[] copy = new ControlBlock[previous.length + 1];
+				System.arraycopy(previous, 0, copy, 0, previous.length);
+				copy[previous.length] = blocks.get(i);
+				table[id] = copy;
+			}
+		}
+		controlBlocks = table;
+	}
+	
+	private static void add(ArrayList<Integer> ids, ArrayList<ControlBlock> blocks, int id, ControlBlock block) {
+		//Air is never a control block, it means the setting is missing or disabled
+		if (id > 0) {
+			ids.add(id);
+			blocks.add(block);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.afforess.minecartmaniacore;
+
+import org.bukkit.craftbukkit.entity.CraftEntity;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Vehicle;
+
+/**
+ * An immutable copy of the state of an entity near a minecart, taken on the main thread so that it can be safely read from
+ * other threads.
+ * @author Afforess
+ */
+public final class EntitySnapshot {
+	/**
+	 ** The live entity. It may only be used from the main thread.
+	 **/
+	public final Entity entity;
+	public final int entityId;
+	public final double x, y, z;
+	public final boolean arrow;
+	public final boolean living;
+	public final boolean player;
+	public final boolean vehicle;
+	public final boolean dead;
+	/**
+	 ** True if this entity is the minecart the snapshot was taken for, or its passenger
+	 **/
+	public final boolean riding;
+	/**
+	 ** True if this entity owns the minecart the snapshot was taken for
+	 **/
+	public final boolean owner;
+	
+	/**
+	 ** Takes a snapshot of the entity, relative to the given minecart. Must be called from the main thread.
+	 ** @param the entity to copy
+	 ** @param the minecart the entity is near
+	 **/
+	public EntitySnapshot(Entity entity, MinecartManiaMinecart minecart) {
+		this.entity = entity;
+		this.entityId = entity.getEntityId();
+		net.minecraft.server.Entity handle = ((CraftEntity)entity).getHandle();
+		this.x = handle.locX;
+		this.y = handle.locY;
+		this.z = handle.locZ;
+		this.dead = handle.dead;
+		this.arrow = entity instanceof Arrow;
+		this.living = entity instanceof LivingEntity;
+		this.player = entity instanceof Player;
+		this.vehicle = entity instanceof Vehicle;
+		Entity passenger = minecart.minecart.getPassenger();
+		this.riding = entityId == minecart.minecart.getEntityId() || (passenger != null && passenger.getEntityId() == entityId);
+		this.owner = player && minecart.isOwner(entity);
+	}
+}
@@ -0,0 +1,18 @@
+package com.afforess.minecartmaniacore;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Selects item stacks for the bulk operations of a MinecartManiaInventory, like transferTo and removeAll.
+ * @author Afforess
+ */
+public interface ItemFilter {
+
+	/**
+	 * Returns true if the given item stack should be included
+	 * @param item stack to check, never null or air
+	 * @return true if the item stack is included
+	 */
+	public boolean accept(ItemStack item);
+
+}
@@ -0,0 +1,88 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.afforess.minecartmaniacore.event.MinecartBatchTimeEvent;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventType;
+
+/**
+ * Fires the MinecartBatchTimeEvent, run by the MinecartManiaClock each tick.
+ * Unsharded, all minecarts are batched into one event at the start of each second. Sharded, the minecarts are split by entity id
+ * across the 20 ticks of a second, so the work done for them each second is spread evenly over the ticks. The minecarts are split
+ * once, at the start of each second, so minecarts added during a second are first batched in the next second.
+ * @author Afforess
+ */
+public class MinecartBatchTimer implements Runnable {
+	private final ArrayList<List<MinecartManiaMinecart>> shards = new ArrayList<List<MinecartManiaMinecart>>(MinecartManiaClock.TICKS_PER_SECOND);
+	//The second the shards were split in
+	private long shardSecond = -1;
+
+	public void run() {
+		if (!MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_BATCH_TIME)) {
+			return;
+		}
+		long tick = MinecartManiaClock.getTick();
+		long second = MinecartManiaClock.getSecond();
+		int shard = (int)(tick % MinecartManiaClock.TICKS_PER_SECOND);
+		if (!MinecartManiaWorld.getCoreConfiguration().shardBatchTimeEvent) {
+			List<MinecartManiaMinecart> minecarts = MinecartManiaWorld.getMinecartManiaMinecarts();
+			if (shard == 0 && !minecarts.isEmpty()) {
+				MinecartManiaEventBus.callEvent(new MinecartBatchTimeEvent(minecarts, second, tick, 0, 1));
+			}
+			return;
+		}
+		//Split at the start of each second, or part way through one if sharding was just turned on
+		if (shardSecond != second) {
+			split(MinecartManiaWorld.getMinecartManiaMinecarts());
+			shardSecond = second;
+		}
+		List<MinecartManiaMinecart> batch = removeDead(shards.get(shard));
+		if (!batch.isEmpty()) {
+			MinecartManiaEventBus.callEvent(new MinecartBatchTimeEvent(batch, second, tick, shard, MinecartManiaClock.TICKS_PER_SECOND));
+		}
+	}
+
+	private void split(List<MinecartManiaMinecart> minecarts) {
+		ArrayList<ArrayList<MinecartManiaMinecart>> lists = new ArrayList<ArrayList<MinecartManiaMinecart>>(MinecartManiaClock.TICKS_PER_SECOND);
+		for (int i = 0; i < MinecartManiaClock.TICKS_PER_SECOND; i++) {
+			lists.add(new ArrayList<MinecartManiaMinecart>(minecarts.size() / MinecartManiaClock.TICKS_PER_SECOND + 1));
+		}
+		for (MinecartManiaMinecart minecart : minecarts) {
+			lists.get(getShard(minecart)).add(minecart);
+		}
+		shards.clear();
+		for (ArrayList<MinecartManiaMinecart> list : lists) {
+			shards.add(Collections.unmodifiableList(list));
+		}
+	}
+
+	/**
+	 ** Returns the given batch without the minecarts that died since it was split, only copying it if any did
+	 **/
+	private static List<MinecartManiaMinecart> removeDead(List<MinecartManiaMinecart> batch) {
+		ArrayList<MinecartManiaMinecart> alive = null;
+		for (int i = 0; i < batch.size(); i++) {
+			MinecartManiaMinecart minecart = batch.get(i);
+			if (MinecartManiaWorld.isDead(minecart.minecart)) {
+				if (alive == null) {
+					alive = new ArrayList<MinecartManiaMinecart>(batch.subList(0, i));
+				}
+			}
+			else if (alive != null) {
+				alive.add(minecart);
+			}
+		}
+		return alive == null ? batch : Collections.unmodifiableList(alive);
+	}
+
+	/**
+	 ** Returns the shard, and so the tick of each second, the given minecart is batched in when the event is sharded
+	 **/
+	public static int getShard(MinecartManiaMinecart minecart) {
+		int id = minecart.minecart.getEntityId();
+		return ((id % MinecartManiaClock.TICKS_PER_SECOND) + MinecartManiaClock.TICKS_PER_SECOND) % MinecartManiaClock.TICKS_PER_SECOND;
+	}
+}
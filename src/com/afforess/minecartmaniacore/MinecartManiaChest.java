@@ -5,13 +5,17 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Chest;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import com.afforess.minecartmaniacore.utils.InventoryBuffer;
+
 public class MinecartManiaChest extends MinecartManiaSingleContainer implements MinecartManiaInventory{
 
 	private final Location chest;
 	private boolean redstonePower;
+	private volatile MinecartManiaChest neighbor = null;
+	private volatile boolean neighborFound = false;
+	private volatile MinecartManiaDoubleChest doubleChest = null;
 	private ConcurrentHashMap<String, Object> data = new ConcurrentHashMap<String,Object>();
 	public MinecartManiaChest(Chest chest) {
 		super(chest.getInventory());
@@ -45,11 +49,69 @@ public class MinecartManiaChest extends MinecartManiaSingleContainer implements
 	
 	
 	/**
-	 * Returns the neighbor chest to this chest, or null if none exists
+	 * Returns true if the block of this chest is still a chest. If not, this chest is removed from storage and invalidated,
+	 * since the block may be removed without a block event, such as by an explosion or another plugin.
+	 * Only reads the block id, so it is cheap enough to check before each use.
+	 * @return true if the chest is still there
+	 */
+	public boolean isPresent() {
+		if (MinecartManiaWorld.getBlockIdAt(getWorld(), getX(), getY(), getZ()) == Item.CHEST.getId()) {
+			return true;
+		}
+		MinecartManiaWorld.delMinecartManiaChest(getWorld(), getX(), getY(), getZ());
+		invalidate();
+		return false;
+	}
+	
+	/**
+	 * Returns the neighbor chest to this chest, or null if none exists.
+	 * The neighbor is remembered until a chest is placed or broken next to this chest, or the neighbor is no longer there.
 	 * @return the neighbor chest
 	 */
 	public MinecartManiaChest getNeighborChest() {
-		return getNeighborChest(chest.getWorld(), getX(), getY(), getZ());
+		MinecartManiaChest neighbor = this.neighbor;
+		if (!neighborFound || (neighbor != null && (!neighbor.isValid() || !neighbor.isPresent()))) {
+			neighbor = getNeighborChest(chest.getWorld(), getX(), getY(), getZ());
+			this.neighbor = neighbor;
+			neighborFound = true;
+		}
+		return neighbor;
+	}
+	
+	/**
+	 * Forgets the neighbor chest, so it is found again the next time it is needed
+	 */
+	void resetNeighborChest() {
+		neighborFound = false;
+		neighbor = null;
+		doubleChest = null;
+	}
+	
+	/**
+	 * Returns the double chest this chest is part of, or null if it has no neighbor chest.
+	 * The double chest is kept until it is no longer valid, so it may be stored.
+	 * @return the double chest
+	 */
+	public MinecartManiaDoubleChest getDoubleChest() {
+		MinecartManiaDoubleChest doubleChest = this.doubleChest;
+		if (doubleChest != null && doubleChest.isValid()) {
+			return doubleChest;
+		}
+		MinecartManiaChest neighbor = getNeighborChest();
+		if (neighbor == null) {
+			this.doubleChest = null;
+			return null;
+		}
+		//Minecraft shows the chest with the lower coordinates first
+		if (neighbor.getX() < getX() || neighbor.getZ() < getZ()) {
+			doubleChest = new MinecartManiaDoubleChest(neighbor, this);
+		}
+		else {
+			doubleChest = new MinecartManiaDoubleChest(this, neighbor);
+		}
+		this.doubleChest = doubleChest;
+		neighbor.doubleChest = doubleChest;
+		return doubleChest;
 	}
 	
 	/**
@@ -61,17 +123,17 @@ public class MinecartManiaChest extends MinecartManiaSingleContainer implements
 	 */
 	 public static MinecartManiaChest getNeighborChest(World w, int x, int y, int z)
 	 {
-    	if (MinecartManiaWorld.getBlockAt(w, x - 1, y, z).getTypeId() == Item.CHEST.getId()) {
-            return MinecartManiaWorld.getMinecartManiaChest((Chest)MinecartManiaWorld.getBlockAt(w, x - 1, y, z).getState());
+    	if (MinecartManiaWorld.getBlockIdAt(w, x - 1, y, z) == Item.CHEST.getId()) {
+            return MinecartManiaWorld.getMinecartManiaChest(w, x - 1, y, z);
         }
-        if(MinecartManiaWorld.getBlockAt(w, x + 1, y, z).getTypeId() == Item.CHEST.getId()) {
-        	return MinecartManiaWorld.getMinecartManiaChest((Chest)MinecartManiaWorld.getBlockAt(w, x + 1, y, z).getState());
+        if(MinecartManiaWorld.getBlockIdAt(w, x + 1, y, z) == Item.CHEST.getId()) {
+        	return MinecartManiaWorld.getMinecartManiaChest(w, x + 1, y, z);
         }
-        if(MinecartManiaWorld.getBlockAt(w, x, y, z - 1).getTypeId() == Item.CHEST.getId()) {
-        	return MinecartManiaWorld.getMinecartManiaChest((Chest)MinecartManiaWorld.getBlockAt(w, x, y, z - 1).getState());
+        if(MinecartManiaWorld.getBlockIdAt(w, x, y, z - 1) == Item.CHEST.getId()) {
+        	return MinecartManiaWorld.getMinecartManiaChest(w, x, y, z - 1);
         }
-        if (MinecartManiaWorld.getBlockAt(w, x, y, z + 1).getTypeId() == Item.CHEST.getId()) {
-        	return MinecartManiaWorld.getMinecartManiaChest((Chest)MinecartManiaWorld.getBlockAt(w, x, y, z + 1).getState());
+        if (MinecartManiaWorld.getBlockIdAt(w, x, y, z + 1) == Item.CHEST.getId()) {
+        	return MinecartManiaWorld.getMinecartManiaChest(w, x, y, z + 1);
 		}
 
 		return null;
@@ -104,7 +166,8 @@ public class MinecartManiaChest extends MinecartManiaSingleContainer implements
 	
 	/**
 	 * Attempts to add an itemstack to this chest. It adds items in a 'smart' manner, merging with existing itemstacks, until they
-	 * reach the maximum size (64). If it fails, it will not alter the chest's previous contents.
+	 * reach the maximum size (64). Items that do not fit are added to the neighbor chest, if there is one.
+	 * If it fails, it will not alter the contents of either chest.
 	 * @param item to add
 	 */
 	public boolean addItem(ItemStack item) {
@@ -115,111 +178,48 @@ public class MinecartManiaChest extends MinecartManiaSingleContainer implements
 		if (item.getTypeId() == Item.AIR.getId()) {
 			return false;
 		}
-		//Backup contents
-		ItemStack[] backup = getContents().clone();
-		ItemStack backupItem = new ItemStack(item.getTypeId(), item.getAmount(), item.getDurability());
-		
-		//First attempt to merge the itemstack with existing item stacks that aren't full (< 64)
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == item.getTypeId() && getItem(i).getDurability() == item.getDurability()) {
-					if (getItem(i).getAmount() + item.getAmount() <= 64) {
-						setItem(i, new ItemStack(item.getTypeId(), getItem(i).getAmount() + item.getAmount(), item.getDurability()));
-						return true;
-					}
-					else {
-						int diff = getItem(i).getAmount() + item.getAmount() - 64;
-						setItem(i, new ItemStack(item.getTypeId(), getItem(i).getAmount() + item.getAmount(), item.getDurability()));
-						item = new ItemStack(item.getTypeId(), diff);
-					}
-				}
+		InventoryBuffer buffer = new InventoryBuffer(this);
+		int left = buffer.add(item.getTypeId(), item.getAmount(), item.getDurability());
+		if (left > 0) {
+			//Try to fit the rest in the neighbor chest, if we have one
+			MinecartManiaChest neighbor = getNeighborChest();
+			if (neighbor == null) {
+				return false;
 			}
-		}
-		
-		//Attempt to add the item to an empty slot
-		int emptySlot = firstEmpty();
-		if (emptySlot > -1) {
-			setItem(emptySlot, item);
-			update();
-			return true;
-		}
-		
-		
-		//Try to merge the itemstack with the neighbor chest, if we have one
-		MinecartManiaChest neighbor = getNeighborChest();
-		if (neighbor != null) {
-			//flag to prevent infinite recursion
-			if (getDataValue("neighbor") == null) {
-				neighbor.setDataValue("neighbor", Boolean.TRUE);
-				if (getNeighborChest().addItem(item)) {
-					update();
-					return true;
-				}
-			}
-			else {
-				//reset flag
-				setDataValue("neighbor", null);
+			InventoryBuffer neighborBuffer = new InventoryBuffer(neighbor);
+			if (neighborBuffer.add(item.getTypeId(), left, item.getDurability()) > 0) {
+				return false;
 			}
+			neighborBuffer.writeTo(neighbor);
 		}
-			
-		//if we fail, reset the inventory and item back to previous values
-		getChest().getInventory().setContents(backup);
-		item = backupItem;
-		return false;
+		buffer.writeTo(this);
+		return true;
 	}
 	
 	
 	/**
-	 * Attempts to remove the specified amount of an item type from this chest. If it fails, it will not alter the chests previous contents.
+	 * Attempts to remove the specified amount of an item type from this chest, and then the neighbor chest, if there is one.
+	 * If it fails, it will not alter the contents of either chest.
 	 * @param type to remove
 	 * @param amount to remove
 	 * @param durability of the item to remove
 	 */
 	public boolean removeItem(int type, int amount, short durability) {
-		//Backup contents
-		ItemStack[] backup = getContents().clone();
-		
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == type && (durability == -1 || (getItem(i).getDurability() == durability))) {
-					if (getItem(i).getAmount() - amount > 0) {
-						setItem(i, new ItemStack(type, getItem(i).getAmount() - amount, durability));
-						update();
-						return true;
-					}
-					else if (getItem(i).getAmount() - amount == 0) {
-						setItem(i, null);
-						update();
-						return true;
-					}
-					else{
-						amount -=  getItem(i).getAmount();
-						setItem(i, null);
-					}
-				}
-			}
-		}
-		
-		MinecartManiaChest neighbor = getNeighborChest();
-		if (neighbor != null) {
-			//flag to prevent infinite recursion
-			if (getDataValue("neighbor") == null) {
-				neighbor.setDataValue("neighbor", Boolean.TRUE);
-				if (neighbor.removeItem(type, amount)) {
-					update();
-					return true;
-				}
+		InventoryBuffer buffer = new InventoryBuffer(this);
+		int left = buffer.remove(type, amount, durability);
+		if (left > 0) {
+			MinecartManiaChest neighbor = getNeighborChest();
+			if (neighbor == null) {
+				return false;
 			}
-			else {
-				//reset flag
-				setDataValue("neighbor", null);
+			InventoryBuffer neighborBuffer = new InventoryBuffer(neighbor);
+			if (neighborBuffer.remove(type, left, durability) > 0) {
+				return false;
 			}
+			neighborBuffer.writeTo(neighbor);
 		}
-		
-			
-		//if we fail, reset the inventory back to previous values
-		getChest().getInventory().setContents(backup);
-		return false;
+		buffer.writeTo(this);
+		return true;
 	}
 
 	public void setRedstonePower(boolean redstonePower) {
@@ -238,8 +238,4 @@ public class MinecartManiaChest extends MinecartManiaSingleContainer implements
 	public String toString() {
 		return "[" + getX() + ":" + getY() + ":" + getZ() + "]";
 	}
-
-	public Inventory getInventory() {
-		return getChest().getInventory();
-	}
 }
@@ -0,0 +1,46 @@
+package com.afforess.minecartmaniacore;
+
+/**
+ * The server wide clock shared by all minecarts. It is advanced once per server tick, and then runs the tasks that must happen every tick.
+ * Minecarts compare the second counter to the last second they saw, instead of each reading the system time on every update.
+ * The counters only ever increase, and count server ticks, so a second is 20 ticks, not a second of wall clock time.
+ * @author Afforess
+ */
+public class MinecartManiaClock implements Runnable {
+	public static final int TICKS_PER_SECOND = 20;
+	private static volatile long tick = 0;
+	private final Runnable[] tasks;
+
+	/**
+	 ** @param the tasks to run every tick, after the clock has advanced
+	 **/
+	public MinecartManiaClock(Runnable... tasks) {
+		this.tasks = tasks;
+	}
+
+	/**
+	 ** Returns the number of server ticks the clock has run for
+	 **/
+	public static long getTick() {
+		return tick;
+	}
+
+	/**
+	 ** Returns the number of whole seconds, of 20 server ticks each, the clock has run for
+	 **/
+	public static long getSecond() {
+		return tick / TICKS_PER_SECOND;
+	}
+
+	public void run() {
+		tick++;
+		for (Runnable task : tasks) {
+			try {
+				task.run();
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -11,12 +11,16 @@ import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import com.afforess.minecartmaniacore.config.SettingList;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
 
 public class MinecartManiaCore extends JavaPlugin {
 	
 	public final MinecartManiaCoreListener listener = new MinecartManiaCoreListener(this);
 	public final MinecartManiaCoreBlockListener blockListener = new MinecartManiaCoreBlockListener();
 	public final MinecartManiaCoreWorldListener worldListener = new MinecartManiaCoreWorldListener();
+	public final MinecartManiaCoreServerListener serverListener = new MinecartManiaCoreServerListener();
+	public final NearEntityScanner entityScanner = new NearEntityScanner();
+	public final MinecartManiaClock clock = new MinecartManiaClock(entityScanner, new MinecartBatchTimer(), new ChunkTicketSweeper(), new SignIndexer(), new RouteBuilder(), new SubscriberCounter());
 	public static Logger log;
 	public static Server server;
 	public static Plugin instance;
@@ -44,14 +48,22 @@ public class MinecartManiaCore extends JavaPlugin {
 		getServer().getPluginManager().registerEvent(Event.Type.VEHICLE_DAMAGE, listener, Priority.Monitor, this);
 		getServer().getPluginManager().registerEvent(Event.Type.VEHICLE_ENTER, listener, Priority.Monitor, this);
 		getServer().getPluginManager().registerEvent(Event.Type.CHUNK_UNLOADED, worldListener, Priority.Normal, this);
+		getServer().getPluginManager().registerEvent(Event.Type.CHUNK_LOADED, worldListener, Priority.Monitor, this);
 		getServer().getPluginManager().registerEvent(Event.Type.REDSTONE_CHANGE, blockListener, Priority.Monitor, this);
+		getServer().getPluginManager().registerEvent(Event.Type.BLOCK_BREAK, blockListener, Priority.Monitor, this);
+		getServer().getPluginManager().registerEvent(Event.Type.BLOCK_PLACED, blockListener, Priority.Monitor, this);
+		getServer().getPluginManager().registerEvent(Event.Type.SIGN_CHANGE, blockListener, Priority.Monitor, this);
+		getServer().getPluginManager().registerEvent(Event.Type.PLUGIN_ENABLE, serverListener, Priority.Monitor, this);
+		getServer().getPluginManager().registerEvent(Event.Type.PLUGIN_DISABLE, serverListener, Priority.Monitor, this);
+		MinecartManiaEventBus.refreshBukkitSubscribers();
+		getServer().getScheduler().scheduleSyncRepeatingTask(this, clock, 1, 1);
 
 		PluginDescriptionFile pdfFile = this.getDescription();
 		log.info( pdfFile.getName() + " version " + pdfFile.getVersion() + " is enabled!" );
 	}
 	
 	public void onDisable(){
-		
+		MinecartManiaTaskScheduler.shutdown();
 	}
 	
 	public boolean onCommand(CommandSender sender, Command command, String commandLabel, String[] args) {
@@ -1,10 +1,13 @@
 package com.afforess.minecartmaniacore;
 
 import org.bukkit.block.Block;
-import org.bukkit.block.Chest;
+import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockListener;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.BlockRedstoneEvent;
+import org.bukkit.event.block.SignChangeEvent;
 import com.afforess.minecartmaniacore.event.ChestPoweredEvent;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
 
 public class MinecartManiaCoreBlockListener extends BlockListener{
     public void onBlockRedstoneChange(BlockRedstoneEvent event) {    
@@ -18,21 +21,22 @@ public class MinecartManiaCoreBlockListener extends BlockListener{
     	for (int dx = -(range); dx <= range; dx++){
 			for (int dy = -(range); dy <= range; dy++){
 				for (int dz = -(range); dz <= range; dz++){
-					Block b = MinecartManiaWorld.getBlockAt(block.getWorld(), block.getX() + dx, block.getY() + dy, block.getZ() + dz);
-					if (b.getState() instanceof Chest) {
-						Chest chest = (Chest)b.getState();
-						MinecartManiaChest mmc = MinecartManiaWorld.getMinecartManiaChest(chest);
+					int x = block.getX() + dx;
+					int y = block.getY() + dy;
+					int z = block.getZ() + dz;
+					if (MinecartManiaWorld.getBlockIdAt(block.getWorld(), x, y, z) == Item.CHEST.getId()) {
+						MinecartManiaChest mmc = MinecartManiaWorld.getMinecartManiaChest(block.getWorld(), x, y, z);
 						if (mmc != null) {
 							boolean previouslyPowered = mmc.isRedstonePower();
 							if (!previouslyPowered && power) {
 								mmc.setRedstonePower(power);
 								ChestPoweredEvent cpe = new ChestPoweredEvent(mmc, power);
-								MinecartManiaCore.server.getPluginManager().callEvent(cpe);
+								MinecartManiaEventBus.callEvent(cpe);
 							}
 							else if (previouslyPowered && !power) {
 								mmc.setRedstonePower(power);
 								ChestPoweredEvent cpe = new ChestPoweredEvent(mmc, power);
-								MinecartManiaCore.server.getPluginManager().callEvent(cpe);
+								MinecartManiaEventBus.callEvent(cpe);
 							}
 						}
 					}
@@ -40,4 +44,49 @@ public class MinecartManiaCoreBlockListener extends BlockListener{
 			}
     	}
     }
+    
+    public void onBlockBreak(BlockBreakEvent event) {
+    	if (event.isCancelled()) {
+    		return;
+    	}
+    	Block block = event.getBlock();
+    	if (MinecartManiaSign.isSign(block.getTypeId())) {
+    		MinecartManiaWorld.removeMinecartManiaSign(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    	}
+    	if (isContainer(block.getTypeId())) {
+    		MinecartManiaWorld.invalidateContainer(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    	}
+    	//Rails resting on the broken block break with it
+    	if (block.getTypeId() == Item.RAILS.getId() || MinecartManiaWorld.getBlockIdAt(block.getWorld(), block.getX(), block.getY() + 1, block.getZ()) == Item.RAILS.getId()) {
+    		MinecartManiaWorld.getRailGraph(block.getWorld()).invalidate(block.getX(), block.getY(), block.getZ());
+    	}
+    }
+    
+    public void onBlockPlace(BlockPlaceEvent event) {
+    	if (event.isCancelled()) {
+    		return;
+    	}
+    	Block block = event.getBlockPlaced();
+    	if (MinecartManiaSign.isSign(block.getTypeId())) {
+    		MinecartManiaWorld.updateMinecartManiaSign(block.getWorld(), block.getX(), block.getY(), block.getZ(), null);
+    	}
+    	if (isContainer(block.getTypeId())) {
+    		MinecartManiaWorld.invalidateContainer(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    	}
+    	if (block.getTypeId() == Item.RAILS.getId()) {
+    		MinecartManiaWorld.getRailGraph(block.getWorld()).invalidate(block.getX(), block.getY(), block.getZ());
+    	}
+    }
+    
+    public void onSignChange(SignChangeEvent event) {
+    	if (event.isCancelled()) {
+    		return;
+    	}
+    	Block block = event.getBlock();
+    	MinecartManiaWorld.updateMinecartManiaSign(block.getWorld(), block.getX(), block.getY(), block.getZ(), event.getLines());
+    }
+    
+    private static boolean isContainer(int id) {
+    	return id == Item.CHEST.getId() || id == Item.DISPENSER.getId() || id == Item.FURNACE.getId() || id == Item.BURNING_FURNACE.getId();
+    }
 }
@@ -1,7 +1,6 @@
 package com.afforess.minecartmaniacore;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 
 import org.bukkit.plugin.PluginManager;
@@ -12,7 +11,6 @@ import net.minecraft.server.EntityLiving;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
-import org.bukkit.block.Sign;
 import org.bukkit.craftbukkit.entity.CraftLivingEntity;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
@@ -34,6 +32,8 @@ import org.bukkit.inventory.ItemStack;
 import com.afforess.minecartmaniacore.event.MinecartActionEvent;
 import com.afforess.minecartmaniacore.event.MinecartClickedEvent;
 import com.afforess.minecartmaniacore.event.MinecartIntersectionEvent;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventType;
 import com.afforess.minecartmaniacore.event.MinecartMotionStartEvent;
 import com.afforess.minecartmaniacore.event.MinecartMotionStopEvent;
 import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
@@ -54,55 +54,65 @@ public class MinecartManiaCoreListener extends VehicleListener{
 			Minecart cart = (Minecart)event.getVehicle();
 			MinecartManiaMinecart minecart = MinecartManiaWorld.getMinecartManiaMinecart(cart);
 			
-			minecart.updateCalendar(); 
-			if (minecart.isMoving()) {
-				minecart.setPreviousFacingDir(minecart.getDirectionOfMotion());
+			minecart.beginUpdate();
+			try {
+				doMinecartUpdate(minecart);
 			}
-			
-			//Fire new events
-			if (minecart.wasMovingLastTick() && !minecart.isMoving()) {
+			finally {
+				minecart.endUpdate();
+			}
+		}
+	 }
+	 
+	 private void doMinecartUpdate(MinecartManiaMinecart minecart) {
+		minecart.updateClock();
+		if (minecart.isMoving()) {
+			minecart.setPreviousFacingDir(minecart.getDirectionOfMotion());
+		}
+		
+		//Fire new events, if anything listens for them
+		if (minecart.wasMovingLastTick() && !minecart.isMoving()) {
+			if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_MOTION_STOP)) {
 				MinecartMotionStopEvent mmse = new MinecartMotionStopEvent(minecart);
-				MinecartManiaCore.server.getPluginManager().callEvent(mmse);
+				minecart.fireEvent(mmse);
 			}
-			else if (!minecart.wasMovingLastTick() && minecart.isMoving()) {
+		}
+		else if (!minecart.wasMovingLastTick() && minecart.isMoving()) {
+			if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_MOTION_START)) {
 				MinecartMotionStartEvent mmse = new MinecartMotionStartEvent(minecart);
-				MinecartManiaCore.server.getPluginManager().callEvent(mmse);
+				minecart.fireEvent(mmse);
 			}
-			minecart.setWasMovingLastTick(minecart.isMoving());
-			minecart.doRealisticFriction();
-			minecart.doLauncherBlock();
-			minecart.updateChunks();
-			
-			if (minecart.hasChangedPosition()) {
+		}
+		minecart.setWasMovingLastTick(minecart.isMoving());
+		minecart.doRealisticFriction();
+		minecart.doLauncherBlock();
+		minecart.updateChunks();
+		
+		if (minecart.hasChangedPosition()) {
+			MinecartManiaWorld.updateMinecartManiaMinecartPosition(minecart);
 
-				if (minecart.isAtIntersection()) {
+			if (minecart.isAtIntersection()) {
+				minecart.followRoute();
+				if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_INTERSECTION)) {
 					MinecartIntersectionEvent mie = new MinecartIntersectionEvent(minecart);
-					MinecartManiaCore.server.getPluginManager().callEvent(mie);
+					minecart.fireEvent(mie);
 				}
-				
+			}
+			
+			//Listeners registered with Bukkit that did not declare their interest are not counted until the next refresh,
+			//and control blocks run as if they took no action until then, see MinecartManiaEventBus.registerInterest
+			boolean action = false;
+			if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_ACTION)) {
 				MinecartActionEvent mae = new MinecartActionEvent(minecart);
-				MinecartManiaCore.server.getPluginManager().callEvent(mae);
-				
-				minecart.doHighSpeedBooster();
-				minecart.doLowSpeedBooster();
-				minecart.doHighSpeedBrake();
-				minecart.doLowSpeedBrake();
-				
-				boolean action = mae.isActionTaken();
-		    	if (!action) {
-		    		action = minecart.doReverse();
-		    	}
-		    	if (!action) {
-		    		action = minecart.doCatcherBlock();
-		    	}
-		    	if (!action) {
-		    		action = minecart.doEjectorBlock();
-		    	}
-		    	MinecartUtils.updateNearbyItems(minecart);
-		    	
-				minecart.updateMotion();
-				minecart.updateLocation();
+				minecart.fireEvent(mae);
+				action = mae.isActionTaken();
 			}
+			
+			minecart.doControlBlocks(action);
+	    	MinecartUtils.updateNearbyItems(minecart);
+	    	
+			minecart.updateMotion();
+			minecart.updateLocation();
 		}
     }
 	
@@ -119,7 +129,7 @@ public class MinecartManiaCoreListener extends VehicleListener{
         			if (minecart.isOnRails()) {
         				if(event.getAttacker() != null && event.getAttacker().getEntityId() == minecart.minecart.getPassenger().getEntityId()) {
         					MinecartClickedEvent mce = new MinecartClickedEvent(minecart);
-        					MinecartManiaCore.server.getPluginManager().callEvent(mce);
+        					MinecartManiaEventBus.callEvent(mce);
         					if (mce.isActionTaken()) {
         						event.setDamage(0);
         						event.setCancelled(true);
@@ -176,12 +186,14 @@ public class MinecartManiaCoreListener extends VehicleListener{
 		final MinecartManiaMinecart minecart = MinecartManiaWorld.getMinecartManiaMinecart((Minecart)event.getVehicle());
 		if (minecart.getBlockIdBeneath() == MinecartManiaWorld.getCatcherBlockId()) {
 			if (!minecart.isMoving()) {
-				ArrayList<Sign> signs = SignUtils.getAdjacentSignList(minecart, 2);
-signs:			for (Sign sign : signs) {
+				ArrayList<MinecartManiaSign> signs = SignUtils.getAdjacentMinecartManiaSignList(minecart, 2);
+signs:			for (MinecartManiaSign sign : signs) {
+					if (!sign.isValid()) {
+						continue;
+					}
 					for (int i = 0; i < 4; i++) {
-						if (sign.getLine(i).toLowerCase().contains("launch player")) {
-							sign.setLine(i, "[Launch Player]");
-							sign.update();
+						if (sign.getCommand(i) == SignCommand.LAUNCH_PLAYER) {
+							sign.setLine(i, SignCommand.LAUNCH_PLAYER.getText());
 							
 							//This task must run next tick, because the player has not yet entered the minecart once the event is fired
 							//and we must wait until the player is in the minecart to launch (affects direction signs)
@@ -0,0 +1,16 @@
+package com.afforess.minecartmaniacore;
+
+import org.bukkit.event.server.PluginEvent;
+import org.bukkit.event.server.ServerListener;
+
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
+
+public class MinecartManiaCoreServerListener extends ServerListener{
+    public void onPluginEnabled(PluginEvent event) {
+    	MinecartManiaEventBus.refreshBukkitSubscribers();
+    }
+    
+    public void onPluginDisabled(PluginEvent event) {
+    	MinecartManiaEventBus.refreshBukkitSubscribers();
+    }
+}
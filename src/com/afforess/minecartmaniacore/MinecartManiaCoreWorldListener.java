@@ -1,26 +1,25 @@
 package com.afforess.minecartmaniacore;
 
-import java.util.ArrayList;
-
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.WorldListener;
 
 public class MinecartManiaCoreWorldListener extends WorldListener{
+    public void onChunkLoaded(ChunkLoadEvent event) {
+    	MinecartManiaWorld.loadMinecartManiaSigns(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+    }
+    
     public void onChunkUnloaded(ChunkUnloadEvent event) {
     	if (!event.isCancelled()) {
     		if (MinecartManiaWorld.isKeepMinecartsLoaded()) {
-    			ArrayList<MinecartManiaMinecart> minecarts = MinecartManiaWorld.getMinecartManiaMinecartList();
-    			for (MinecartManiaMinecart minecart : minecarts) {
-    				if (Math.abs(event.getChunk().getX() - minecart.minecart.getLocation().getBlock().getChunk().getX()) > 1) {
-    					continue;
-    				}
-    				if (Math.abs(event.getChunk().getZ() - minecart.minecart.getLocation().getBlock().getChunk().getZ()) > 1) {
-    					continue;
-    				}
+    			if (MinecartManiaWorld.isChunkRetained(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ())) {
     				event.setCancelled(true);
     				return;
     			}
     		}
+    		MinecartManiaWorld.unloadMinecartManiaSigns(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+    		MinecartManiaWorld.unloadContainers(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+    		MinecartManiaWorld.unloadRails(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ());
     	}
     }
 }
@@ -5,7 +5,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Dispenser;
-import org.bukkit.inventory.Inventory;
 
 public class MinecartManiaDispenser extends MinecartManiaSingleContainer implements MinecartManiaInventory{
 
@@ -64,10 +63,7 @@ public class MinecartManiaDispenser extends MinecartManiaSingleContainer impleme
 			 data.put(key, value);
 		 }
 	 }
-	 
-	 public Inventory getInventory() {
-			return getDispenser().getInventory();
-		}
+
          public boolean isRedstonePower() {
              return false;
          }
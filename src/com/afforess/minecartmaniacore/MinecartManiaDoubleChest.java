@@ -4,19 +4,43 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
+import com.afforess.minecartmaniacore.utils.InventoryUtils;
+import com.afforess.minecartmaniacore.utils.ItemCountIndex;
+
 /**
- * A temporary object that allows for easy use of accessing and altering the contents of a double chest. 
- * References are not safe, do not store them for later retrieval. Create them only as needed.
+ * The 54 slots of a double chest, as one inventory. The slots of the first chest come first, followed by the slots of the second chest.
+ * Use MinecartManiaChest.getDoubleChest to get the double chest a chest is part of, it is kept until either chest is broken, unloaded or
+ * stops being next to the other.
  * @author Afforess
  */
 public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 
 	private final MinecartManiaChest chest1;
 	private final MinecartManiaChest chest2;
+	private volatile ItemCountIndex index = null;
+	private volatile ItemCountIndex index1 = null;
+	private volatile ItemCountIndex index2 = null;
 	public MinecartManiaDoubleChest(MinecartManiaChest left, MinecartManiaChest right) {
 		this.chest1 = left;
 		this.chest2 = right;
 	}
+	
+	public MinecartManiaChest getFirstChest() {
+		return chest1;
+	}
+	
+	public MinecartManiaChest getSecondChest() {
+		return chest2;
+	}
+	
+	/**
+	 * Returns false once either chest has been broken, removed or unloaded, or the chests are no longer next to each other.
+	 * The blocks of both chests are checked, so chests removed without a block event are noticed too.
+	 * @return true if this double chest is still valid
+	 */
+	public boolean isValid() {
+		return chest1.isValid() && chest2.isValid() && chest1.isPresent() && chest1.getNeighborChest() == chest2;
+	}
 
         public boolean isRedstonePower() {
          
@@ -34,60 +58,63 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	}
 	
 	/**
-	 * Attempts to add an itemstack to this storage minecart. It adds items in a 'smart' manner, merging with existing itemstacks, until they
-	 * reach the maximum size (64). If it fails, it will not alter the storage minecart's previous contents.
+	 * Attempts to add an itemstack to this double chest. It adds items in a 'smart' manner, merging with existing itemstacks in either chest, until they
+	 * reach the maximum size (64). If it fails, it will not alter the contents of either chest.
 	 * @param item to add
 	 * @return true if the item was successfully added
 	 */
 	public boolean addItem(ItemStack item) {
-		return chest1.addItem(item);
+		if (item == null) {
+			return true;
+		}
+		return InventoryUtils.addItem(this, item.getTypeId(), item.getAmount(), item.getDurability());
 	}
 
 	/**
-	 ** Attempts to add a single item of the given type to this storage minecart. If it fails, it will not alter the storage minecart's previous contents
+	 ** Attempts to add a single item of the given type to this double chest. If it fails, it will not alter the contents of either chest
 	 ** @param type to add
 	 **/
 	public boolean addItem(int type) {
-		return chest1.addItem(type);
+		return addItem(type, 1);
 	}
 
 	/**
-	 ** Attempts to add a given amount of a given type to this storage minecart. If it fails, it will not alter the storage minecart's previous contents
+	 ** Attempts to add a given amount of a given type to this double chest. If it fails, it will not alter the contents of either chest
 	 ** @param type to add
 	 ** @param amount to add
 	 **/
 	public boolean addItem(int type, int amount) {
-		return chest1.addItem(type, amount);
+		return addItem(new ItemStack(type, amount));
 	}
 	
 	/**
-	 * Attempts to remove the specified amount of an item type from this storage minecart. If it fails, it will not alter the storage minecart's previous contents
+	 * Attempts to remove the specified amount of an item type from this double chest. If it fails, it will not alter the contents of either chest
 	 * @param type to remove
 	 * @param amount to remove
 	 * @param durability of the item to remove
 	 * @return true if the items were successfully removed
 	 */
 	public boolean removeItem(int type, int amount, short durability) {
-		return chest1.removeItem(type, amount, durability);
+		return InventoryUtils.removeItem(this, type, amount, durability);
 	}
 	
 	/**
-	 * Attempts to remove the specified amount of an item type from this storage minecart. If it fails, it will not alter the storage minecart's previous contents
+	 * Attempts to remove the specified amount of an item type from this double chest. If it fails, it will not alter the contents of either chest
 	 * @param type to remove
 	 * @param amount to remove
 	 * @return true if the items were successfully removed
 	 */
 	public boolean removeItem(int type, int amount) {
-		return chest1.removeItem(type, amount);
+		return removeItem(type, amount, (short) -1);
 	}
 	
 	/**
-	 * Attempts to remove a single item type from this storage minecart. If it fails, it will not alter the storage minecart previous contents
+	 * Attempts to remove a single item type from this double chest. If it fails, it will not alter the contents of either chest
 	 * @param type to remove
 	 * @return true if the item was successfully removed
 	 */
 	public boolean removeItem(int type) {
-		return chest1.removeItem(type);
+		return removeItem(type, 1);
 	}
 
 	/**
@@ -116,21 +143,20 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	}
 
 	/**
-	 * Get's the first empty slot in this storage minecart
-	 * @return the first empty slot in this storage minecart
+	 * Get's the first empty slot in this double chest
+	 * @return the first empty slot in this double chest
 	 */
 	public int firstEmpty() {
-		if (chest1.firstEmpty() != -1) {
-			return chest1.firstEmpty();
-		}
-		if (chest2.firstEmpty() != -1) {
-			return chest2.firstEmpty()+chest1.size();
+		int slot = chest1.firstEmpty();
+		if (slot != -1) {
+			return slot;
 		}
-		return -1;
+		slot = chest2.firstEmpty();
+		return slot == -1 ? -1 : slot + chest1.size();
 	}
 
 	/**
-	 * Gets the size of the inventory of this storage minecart
+	 * Gets the size of the inventory of this double chest
 	 * @return the size of the inventory
 	 */
 	public int size() {
@@ -138,18 +164,79 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	}
 
 	/**
-	 * Gets an array of the Itemstack's inside this storage minecart. Empty slots are represented by air stacks
+	 * Gets an array of the Itemstack's inside this double chest. Empty slots are represented by air stacks
 	 * @return the contents of this inventory
 	 */
 	public ItemStack[] getContents() {
-		ItemStack[] contents = new ItemStack[size()];
-		for (int i = 0; i < chest1.size(); i++) {
-			contents[i] = chest1.getItem(i);
+		ItemStack[] contents1 = chest1.getContents();
+		ItemStack[] contents2 = chest2.getContents();
+		ItemStack[] contents = new ItemStack[contents1.length + contents2.length];
+		System.arraycopy(contents1, 0, contents, 0, contents1.length);
+		System.arraycopy(contents2, 0, contents, contents1.length, contents2.length);
+		return contents;
+	}
+	
+	/**
+	 * Replaces the contents of both chests. The first slots belong to the first chest.
+	 * @param contents to set, one for each slot of both chests
+	 * @throws IllegalArgumentException if the number of contents is not the size of both chests
+	 */
+	public void setContents(ItemStack[] contents) {
+		if (contents.length != size()) {
+			throw new IllegalArgumentException("Expected " + size() + " item stacks, got " + contents.length);
 		}
-		for (int i = 0; i < chest2.size(); i++) {
-			contents[i+chest1.size()] = chest2.getItem(i);
+		ItemStack[] contents1 = new ItemStack[chest1.size()];
+		ItemStack[] contents2 = new ItemStack[contents.length - contents1.length];
+		System.arraycopy(contents, 0, contents1, 0, contents1.length);
+		System.arraycopy(contents, contents1.length, contents2, 0, contents2.length);
+		chest1.setContents(contents1);
+		chest2.setContents(contents2);
+	}
+	
+	/**
+	 * Attempts to add all of the given item stacks. If any of them do not fit, the contents of neither chest are changed.
+	 * @param items to add
+	 * @return true if all of the items were added
+	 */
+	public boolean addAll(ItemStack[] items) {
+		return InventoryUtils.addAll(this, items);
+	}
+	
+	/**
+	 * Removes every item stack accepted by the filter
+	 * @param filter selecting the stacks to remove
+	 * @return the item stacks removed
+	 */
+	public ItemStack[] removeAll(ItemFilter filter) {
+		return InventoryUtils.removeAll(this, filter);
+	}
+	
+	/**
+	 * Moves every item stack accepted by the filter into the given inventory, as far as they fit
+	 * @param inventory to move the items to
+	 * @param filter selecting the stacks to move, or null for all stacks
+	 * @return the number of items moved
+	 */
+	public int transferTo(MinecartManiaInventory inventory, ItemFilter filter) {
+		return InventoryUtils.transfer(this, inventory, filter);
+	}
+	
+	/**
+	 * Gets a summary of the item counts and slots of both chests. It is joined from the summaries of each chest, and kept until either of those changes.
+	 * It is only for read only checks, see MinecartManiaSingleContainer.getItemCountIndex.
+	 * @return the item count index
+	 */
+	public ItemCountIndex getItemCountIndex() {
+		ItemCountIndex first = chest1.getItemCountIndex();
+		ItemCountIndex second = chest2.getItemCountIndex();
+		ItemCountIndex index = this.index;
+		if (index == null || index1 != first || index2 != second) {
+			index = new ItemCountIndex(first, second);
+			this.index = index;
+			this.index1 = first;
+			this.index2 = second;
 		}
-		return contents;
+		return index;
 	}
 	
 	/**
@@ -187,13 +274,12 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	 * @return the first slot with the given type id and durability
 	 */
 	public int first(int type, short durability) {
-		if (chest1.first(type, durability) != -1) {
-			return chest1.first(type);
+		int slot = chest1.first(type, durability);
+		if (slot != -1) {
+			return slot;
 		}
-		if (chest2.first(type, durability) != -1) {
-			return chest2.first(type)+chest1.size();
-		}
-		return -1;
+		slot = chest2.first(type, durability);
+		return slot == -1 ? -1 : slot + chest1.size();
 	}
 
 	/**
@@ -201,13 +287,7 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	 * @return true if the inventory contains no items
 	 */
 	public boolean isEmpty() {
-		for (ItemStack i : getContents()) {
-			//I hate you too, air.
-			if (i != null && i.getType() != Material.AIR) {
-				return false;
-			}
-		}
-		return true;
+		return getItemCountIndex().isEmpty();
 	}
 	
 	/**
@@ -216,7 +296,7 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	 * @return true if the material is found
 	 */
 	public boolean contains(Material material) {
-		return (chest1.contains(material) || chest2.contains(material));
+		return getItemCountIndex().contains(material.getId(), (short) -1);
 	}
 	
 	/**
@@ -225,7 +305,7 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	 * @return true if the Item is found
 	 */
 	public boolean contains(Item item) {
-		return (chest1.contains(item) || chest2.contains(item));
+		return getItemCountIndex().contains(item.getId(), (short) (item.hasData() ? item.getData() : -1));
 	}
 
 	/**
@@ -234,7 +314,7 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	 * @return true if an item matching the type id is found
 	 */
 	public boolean contains(int type) {
-		return chest1.contains(type) || chest2.contains(type);
+		return getItemCountIndex().contains(type, (short) -1);
 	}
 	
 	/**
@@ -244,7 +324,7 @@ public class MinecartManiaDoubleChest implements MinecartManiaInventory{
 	 * @return true if an item matching the type id and durability is found
 	 */
 	public boolean contains(int type, short durability) {
-		return chest1.contains(type, durability) || chest2.contains(type, durability);
+		return getItemCountIndex().contains(type, durability);
 	}
 
 }
@@ -5,7 +5,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Furnace;
-import org.bukkit.inventory.Inventory;
 
 public class MinecartManiaFurnace extends MinecartManiaSingleContainer implements MinecartManiaInventory{
 
@@ -64,10 +63,6 @@ public class MinecartManiaFurnace extends MinecartManiaSingleContainer implement
 			 data.put(key, value);
 		 }
 	 }
-	 
-	 public Inventory getInventory() {
-			return getFurnace().getInventory();
-		}
 
            public boolean isRedstonePower() {
              return false;
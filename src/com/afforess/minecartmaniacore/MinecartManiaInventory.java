@@ -3,6 +3,8 @@ package com.afforess.minecartmaniacore;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
+import com.afforess.minecartmaniacore.utils.ItemCountIndex;
+
 public interface MinecartManiaInventory {
 	
 	public boolean contains(Material m);
@@ -45,6 +47,41 @@ public interface MinecartManiaInventory {
 	//public Inventory getInventory();
 	
 	public ItemStack[] getContents();
+	
+	/**
+	 * Replaces the contents of this inventory. Null entries are empty slots.
+	 * @param contents to set, the same size as this inventory
+	 */
+	public void setContents(ItemStack[] contents);
+	
+	/**
+	 * Attempts to add all of the given item stacks. If any of them do not fit, the contents are not changed.
+	 * @param items to add
+	 * @return true if all of the items were added
+	 */
+	public boolean addAll(ItemStack[] items);
+	
+	/**
+	 * Removes every item stack accepted by the filter
+	 * @param filter selecting the stacks to remove, or null for all stacks
+	 * @return the item stacks removed
+	 */
+	public ItemStack[] removeAll(ItemFilter filter);
+	
+	/**
+	 * Moves every item stack accepted by the filter into the given inventory, as far as they fit.
+	 * Nothing is moved if the inventories share slots, such as a double chest and one of its halves.
+	 * @param inventory to move the items to
+	 * @param filter selecting the stacks to move, or null for all stacks
+	 * @return the number of items moved
+	 */
+	public int transferTo(MinecartManiaInventory inventory, ItemFilter filter);
+	
+	/**
+	 * Gets a summary of the item counts and slots of this inventory, for fast contains, first and capacity checks
+	 * @return the item count index
+	 */
+	public ItemCountIndex getItemCountIndex();
 
         public boolean isRedstonePower();
 }
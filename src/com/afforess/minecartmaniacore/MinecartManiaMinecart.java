@@ -1,25 +1,25 @@
 package com.afforess.minecartmaniacore;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.concurrent.ConcurrentHashMap;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.Chest;
-import org.bukkit.block.Sign;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Minecart;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.StorageMinecart;
 import org.bukkit.entity.PoweredMinecart;
+import org.bukkit.event.Event;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.Vector;
 
 import com.afforess.minecartmaniacore.event.MinecartBoostEvent;
 import com.afforess.minecartmaniacore.event.MinecartBrakeEvent;
 import com.afforess.minecartmaniacore.event.MinecartLaunchedEvent;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventType;
 import com.afforess.minecartmaniacore.event.MinecartManiaMinecartCreatedEvent;
 import com.afforess.minecartmaniacore.event.MinecartManiaMinecartDestroyedEvent;
 import com.afforess.minecartmaniacore.event.MinecartTimeEvent;
@@ -27,6 +27,7 @@ import com.afforess.minecartmaniacore.utils.DirectionUtils;
 import com.afforess.minecartmaniacore.utils.MinecartUtils;
 import com.afforess.minecartmaniacore.utils.SignUtils;
 import com.afforess.minecartmaniacore.utils.StringUtils;
+import com.afforess.minecartmaniacore.utils.TrackPath;
 import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
 
 
@@ -34,12 +35,29 @@ public class MinecartManiaMinecart {
 	public final Minecart minecart;
 	private Vector previousLocation;
 	private Vector previousMotion;
-	private Calendar cal;
+	private long lastSecond;
 	private DirectionUtils.CompassDirection previousFacingDir = DirectionUtils.CompassDirection.NO_DIRECTION;
 	private boolean wasMovingLastTick;
 	private String owner = "none";
 	private ConcurrentHashMap<String, Object> data = new ConcurrentHashMap<String,Object>();
 	private int entityDetectionRange = 2;
+	private int entityScanInterval = 5;
+	private long lastEntityScanTick = Long.MIN_VALUE / 2;
+	//Block position this minecart is indexed at by MinecartManiaWorld
+	String indexedWorld = null;
+	long indexedPosition;
+	//Chunk this minecart is keeping loaded by MinecartManiaWorld
+	String ticketWorld = null;
+	long ticketChunk;
+	//Snapshot of the minecart's state, captured once at the start of each vehicle update
+	private volatile boolean updating = false;
+	private World world;
+	private double locationX, locationY, locationZ;
+	private int blockX, blockY, blockZ;
+	private double motionX, motionY, motionZ;
+	private boolean motionChanged = false;
+	private boolean motionStale = false;
+	private final Vector velocity = new Vector();
 	public static final double MAXIMUM_MOMENTUM = 1E150D;
 	
 	public MinecartManiaMinecart(Minecart cart) {
@@ -56,12 +74,13 @@ public class MinecartManiaMinecart {
 	
 	private void initialize() {
 		setEntityDetectionRange(MinecartManiaWorld.getIntValue(MinecartManiaWorld.getConfigurationValue("Nearby Collection Range")));
-		cal = Calendar.getInstance();
+		lastSecond = MinecartManiaClock.getSecond();
 		setWasMovingLastTick(isMoving());
-		previousMotion = minecart.getVelocity().clone();
-		previousLocation = minecart.getLocation().toVector().clone();
+		previousMotion = minecart.getVelocity();
+		previousLocation = minecart.getLocation().toVector();
 		minecart.setMaxSpeed(MinecartManiaWorld.getDefaultMinecartSpeedPercent() * 0.4D / 100);
-		MinecartManiaCore.server.getPluginManager().callEvent(new MinecartManiaMinecartCreatedEvent(this));
+		MinecartManiaWorld.updateMinecartManiaMinecartPosition(this);
+		MinecartManiaEventBus.callEvent(new MinecartManiaMinecartCreatedEvent(this));
 	}
 
 	/**
@@ -84,12 +103,83 @@ public class MinecartManiaMinecart {
 		}
 	}
 
+	/**
+	 * Captures the location, block position, world and motion of this minecart. Until endUpdate is called, all helper methods
+	 * read from this snapshot instead of asking bukkit for a new location or velocity, and any changes to the motion are buffered.
+	 */
+	public void beginUpdate() {
+		Location location = minecart.getLocation();
+		world = location.getWorld();
+		locationX = location.getX();
+		locationY = location.getY();
+		locationZ = location.getZ();
+		blockX = location.getBlockX();
+		blockY = location.getBlockY();
+		blockZ = location.getBlockZ();
+		readMotion();
+		motionChanged = false;
+		updating = true;
+	}
+	
+	/**
+	 * Writes any buffered motion to the minecart with a single velocity change, and stops using the snapshot taken by beginUpdate.
+	 */
+	public void endUpdate() {
+		flushMotion();
+		updating = false;
+	}
+	
+	/**
+	 * Returns true if this minecart is inside of a vehicle update, and is reading from the snapshot taken at the start of it
+	 */
+	public boolean isUpdating() {
+		return updating;
+	}
+	
+	/**
+	 * Calls the given event. Any buffered motion is written to the minecart first, and read back afterwards, 
+	 * since the listeners of the event may read or alter the minecart's velocity directly.
+	 * @param event to call
+	 */
+	public void fireEvent(Event event) {
+		if (updating) {
+			flushMotion();
+			motionStale = true;
+		}
+		MinecartManiaEventBus.callEvent(event);
+	}
+	
+	private void readMotion() {
+		Vector motion = minecart.getVelocity();
+		motionX = motion.getX();
+		motionY = motion.getY();
+		motionZ = motion.getZ();
+		motionStale = false;
+	}
+	
+	private void flushMotion() {
+		if (motionChanged) {
+			velocity.setX(motionX);
+			velocity.setY(motionY);
+			velocity.setZ(motionZ);
+			minecart.setVelocity(velocity);
+			motionChanged = false;
+		}
+	}
+	
 	public Vector getPreviousLocation() {
 		return previousLocation.clone();
 	}
 	
 	public void updateLocation() {
-		previousLocation = minecart.getLocation().toVector().clone();
+		if (updating) {
+			previousLocation.setX(locationX);
+			previousLocation.setY(locationY);
+			previousLocation.setZ(locationZ);
+		}
+		else {
+			previousLocation = minecart.getLocation().toVector();
+		}
 	}
 	
 	public Vector getPreviousMotion() {
@@ -97,44 +187,76 @@ public class MinecartManiaMinecart {
 	}
 	
 	public void updateMotion() {
-		previousMotion = minecart.getVelocity().clone();
+		if (updating) {
+			previousMotion.setX(getMotionX());
+			previousMotion.setY(getMotionY());
+			previousMotion.setZ(getMotionZ());
+		}
+		else {
+			previousMotion = minecart.getVelocity();
+		}
 	}
 	
 	public boolean hasChangedPosition() {
-		if (getPreviousLocation().getBlockX() != minecart.getLocation().getBlockX()) {
+		if (previousLocation.getBlockX() != getX()) {
 			return true;
 		}
-		if (getPreviousLocation().getBlockY() != minecart.getLocation().getBlockY()) {
+		if (previousLocation.getBlockY() != getY()) {
 			return true;
 		}
-		if (getPreviousLocation().getBlockZ() != minecart.getLocation().getBlockZ()) {
+		if (previousLocation.getBlockZ() != getZ()) {
 			return true;
 		}
 		return false;
 	}
 	
+	public World getWorld() {
+		if (updating) {
+			return world;
+		}
+		return minecart.getWorld();
+	}
+	
 	public double getMotionX() {
+		if (updating) {
+			if (motionStale) readMotion();
+			return motionX;
+		}
 		return minecart.getVelocity().getX();
 	}
 	
 	public double getMotionY() {
+		if (updating) {
+			if (motionStale) readMotion();
+			return motionY;
+		}
 		return minecart.getVelocity().getY();
 	}
 	
 	public double getMotionZ() {
+		if (updating) {
+			if (motionStale) readMotion();
+			return motionZ;
+		}
 		return minecart.getVelocity().getZ();
 	}
 	
 	public void setMotionX(double motionX){
-		setMotion(motionX, getMotionY(), getMotionZ());
+		loadMotion();
+		this.motionX = motionX;
+		storeMotion();
 	}
 	
 	public void setMotionY(double motionY){
-		setMotion(getMotionX(), motionY, getMotionZ());
+		loadMotion();
+		this.motionY = motionY;
+		storeMotion();
 	}
 	
 	public void setMotionZ(double motionZ){
-		setMotion(getMotionX(), getMotionY(), motionZ);
+		loadMotion();
+		this.motionZ = motionZ;
+		storeMotion();
 	}
 	
 	/**
@@ -143,23 +265,62 @@ public class MinecartManiaMinecart {
 	 * @param multiplier
 	 */
 	public void multiplyMotion(double multiplier) {
-		if (MAXIMUM_MOMENTUM / multiplier > Math.abs(getMotionX())) {
-			setMotionX(getMotionX() * multiplier);
+		scaleMotion(multiplier, multiplier, multiplier);
+	}
+	
+	/**
+	 * Multiplies each axis of the minecarts current motion by the given multipliers, in a safe way that will avoid
+	 * causing overflow. The velocity of the minecart is read and written at most once.
+	 * @param multiplierX for the x axis
+	 * @param multiplierY for the y axis
+	 * @param multiplierZ for the z axis
+	 */
+	public void scaleMotion(double multiplierX, double multiplierY, double multiplierZ) {
+		loadMotion();
+		if (MAXIMUM_MOMENTUM / multiplierX > Math.abs(motionX)) {
+			motionX *= multiplierX;
 		}
-		if (MAXIMUM_MOMENTUM / multiplier > Math.abs(getMotionY())) {
-			setMotionY(getMotionY() * multiplier);
+		if (MAXIMUM_MOMENTUM / multiplierY > Math.abs(motionY)) {
+			motionY *= multiplierY;
 		}
-		if (MAXIMUM_MOMENTUM / multiplier > Math.abs(getMotionZ())) {
-			setMotionZ(getMotionZ() * multiplier);
+		if (MAXIMUM_MOMENTUM / multiplierZ > Math.abs(motionZ)) {
+			motionZ *= multiplierZ;
 		}
+		storeMotion();
 	}
 	
-	private void setMotion(double motionX, double motionY, double motionZ) {
-		Vector newVelocity = new Vector();
-		newVelocity.setX(motionX);
-		newVelocity.setY(motionY);
-		newVelocity.setZ(motionZ);
-		minecart.setVelocity(newVelocity);
+	/**
+	 * Sets the motion of the minecart on all three axis at once.
+	 * @param motionX new motion on the x axis
+	 * @param motionY new motion on the y axis
+	 * @param motionZ new motion on the z axis
+	 */
+	public void setMotion(double motionX, double motionY, double motionZ) {
+		this.motionX = motionX;
+		this.motionY = motionY;
+		this.motionZ = motionZ;
+		storeMotion();
+	}
+	
+	/**
+	 * Reads the velocity of the minecart into the motion fields, unless they already hold it
+	 */
+	private void loadMotion() {
+		if (!updating || motionStale) {
+			readMotion();
+		}
+	}
+	
+	/**
+	 * Marks the motion fields as changed. Outside of an update they are written to the minecart immediately, 
+	 * otherwise they are written when the update ends.
+	 */
+	private void storeMotion() {
+		motionStale = false;
+		motionChanged = true;
+		if (!updating) {
+			flushMotion();
+		}
 	}
 	
 	public void stopCart() {
@@ -171,17 +332,40 @@ public class MinecartManiaMinecart {
 	}
 	
 	public int getX(){
+		if (updating) {
+			return blockX;
+		}
 		return minecart.getLocation().getBlockX();
 	}
 	
 	public int getY(){
+		if (updating) {
+			return blockY;
+		}
 		return minecart.getLocation().getBlockY();
 	}
 	
 	public int getZ(){
+		if (updating) {
+			return blockZ;
+		}
 		return minecart.getLocation().getBlockZ();
 	}
 	
+	private double getExactX() {
+		if (updating) {
+			return locationX;
+		}
+		return minecart.getLocation().getX();
+	}
+	
+	private double getExactZ() {
+		if (updating) {
+			return locationZ;
+		}
+		return minecart.getLocation().getZ();
+	}
+	
 	public void setPreviousFacingDir(DirectionUtils.CompassDirection dir) {
 		previousFacingDir = dir;
 	}
@@ -215,20 +399,47 @@ public class MinecartManiaMinecart {
 	 }
 	
 	public int getBlockIdBeneath() {
-		return MinecartManiaWorld.getBlockAt(minecart.getWorld(), getX(), getY()-1, getZ()).getTypeId();
+		return MinecartManiaWorld.getBlockIdAt(getWorld(), getX(), getY()-1, getZ());
 	}
 	
 	public boolean isPoweredBeneath() {
-		if (MinecartManiaWorld.isBlockIndirectlyPowered(minecart.getWorld(), getX(), getY()-1, getZ()) || MinecartManiaWorld.isBlockIndirectlyPowered(minecart.getWorld(), getX(), getY(), getZ())) {
+		if (MinecartManiaWorld.isBlockIndirectlyPowered(getWorld(), getX(), getY()-1, getZ()) || MinecartManiaWorld.isBlockIndirectlyPowered(getWorld(), getX(), getY(), getZ())) {
 			return true;
 		}
 		return false;
 	}
 	
 	public void reverse() {
-		setMotionX(getMotionX() * -1);
-		setMotionY(getMotionY() * -1);
-		setMotionZ(getMotionZ() * -1);
+		loadMotion();
+		motionX = -motionX;
+		motionY = -motionY;
+		motionZ = -motionZ;
+		storeMotion();
+	}
+	
+	/**
+	 * Executes the control blocks registered for the block beneath this minecart. The block id beneath
+	 * is read once, and the redstone power state is read at most once.
+	 * @param actionTaken whether an action has already been taken this update. If so, control blocks that are actions are skipped.
+	 * @return true if an action was taken, either previously or by a control block
+	 */
+	public boolean doControlBlocks(boolean actionTaken) {
+		ControlBlock[] blocks = ControlBlockRegistry.getControlBlocks(getBlockIdBeneath());
+		if (blocks == null) {
+			return actionTaken;
+		}
+		boolean powered = isPoweredBeneath();
+		for (int i = 0; i < blocks.length; i++) {
+			if (blocks[i].isAction()) {
+				if (!actionTaken) {
+					actionTaken = blocks[i].execute(this, powered);
+				}
+			}
+			else {
+				blocks[i].execute(this, powered);
+			}
+		}
+		return actionTaken;
 	}
 	
 	public boolean doReverse() {
@@ -241,44 +452,62 @@ public class MinecartManiaMinecart {
 
 	public boolean doLowSpeedBrake() {
 		if (getBlockIdBeneath() == MinecartManiaWorld.getLowSpeedBrakeBlockId() && !isPoweredBeneath()){
-			MinecartBrakeEvent mbe = new MinecartBrakeEvent(this, MinecartManiaWorld.getLowSpeedBrakeBlockDivisor());
-			MinecartManiaCore.server.getPluginManager().callEvent(mbe);
-			multiplyMotion(1 / mbe.getBrakeDivisor());
-    		return mbe.getBrakeDivisor() !=  1.0D;
+			return brake(MinecartManiaWorld.getLowSpeedBrakeBlockDivisor());
     	}
 		return false;
 	}
 
 	public boolean doHighSpeedBrake() {
 		if (getBlockIdBeneath() == MinecartManiaWorld.getHighSpeedBrakeBlockId() && !isPoweredBeneath()){
-			MinecartBrakeEvent mbe = new MinecartBrakeEvent(this, MinecartManiaWorld.getHighSpeedBrakeBlockDivisor());
-			MinecartManiaCore.server.getPluginManager().callEvent(mbe);
-			multiplyMotion(1 / mbe.getBrakeDivisor());
-    		return mbe.getBrakeDivisor() !=  1.0D;
+			return brake(MinecartManiaWorld.getHighSpeedBrakeBlockDivisor());
     	}
 		return false;
 	}
 
 	public boolean doLowSpeedBooster() {
 		if (getBlockIdBeneath() == MinecartManiaWorld.getLowSpeedBoosterBlockId() && !isPoweredBeneath()){
-			MinecartBoostEvent mbe = new MinecartBoostEvent(this, MinecartManiaWorld.getLowSpeedBoosterBlockMultiplier());
-			MinecartManiaCore.server.getPluginManager().callEvent(mbe);
-			multiplyMotion(mbe.getBoostMultiplier());
-    		return mbe.getBoostMultiplier() != 1.0D;
+			return boost(MinecartManiaWorld.getLowSpeedBoosterBlockMultiplier());
     	}
 		return false;
 	}
 	
 	public boolean doHighSpeedBooster() {
 		if (getBlockIdBeneath() == MinecartManiaWorld.getHighSpeedBoosterBlockId() && !isPoweredBeneath()){
-			MinecartBoostEvent mbe = new MinecartBoostEvent(this, MinecartManiaWorld.getHighSpeedBoosterBlockMultiplier());
-			MinecartManiaCore.server.getPluginManager().callEvent(mbe);
-			multiplyMotion(mbe.getBoostMultiplier());
-    		return mbe.getBoostMultiplier() != 1.0D;
+			return boost(MinecartManiaWorld.getHighSpeedBoosterBlockMultiplier());
     	}
 		return false;
 	}
 	
+	/**
+	 * Boosts this minecart by the given multiplier, after giving other plugins a chance to change it
+	 * @param multiplier to boost by
+	 * @return true if the minecart's speed was changed
+	 */
+	public boolean boost(double multiplier) {
+		if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_BOOSTED)) {
+			MinecartBoostEvent mbe = new MinecartBoostEvent(this, multiplier);
+			fireEvent(mbe);
+			multiplier = mbe.getBoostMultiplier();
+		}
+		multiplyMotion(multiplier);
+		return multiplier != 1.0D;
+	}
+	
+	/**
+	 * Brakes this minecart by the given divisor, after giving other plugins a chance to change it
+	 * @param divisor to brake by
+	 * @return true if the minecart's speed was changed
+	 */
+	public boolean brake(double divisor) {
+		if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_BRAKED)) {
+			MinecartBrakeEvent mbe = new MinecartBrakeEvent(this, divisor);
+			fireEvent(mbe);
+			divisor = mbe.getBrakeDivisor();
+		}
+		multiplyMotion(1 / divisor);
+		return divisor != 1.0D;
+	}
+	
 	public void doLauncherBlock() {
 		if (getBlockIdBeneath() == MinecartManiaWorld.getCatcherBlockId()){
 			if (isPoweredBeneath()) {
@@ -301,94 +530,59 @@ public class MinecartManiaMinecart {
 	
 	public void launchCart() {
 
-		ArrayList<Sign> signList = SignUtils.getAdjacentSignList(this, 2);
-loop:   for (Sign sign : signList) {
+		TrackPath path = new TrackPath();
+		ArrayList<MinecartManiaSign> signList = SignUtils.getAdjacentMinecartManiaSignList(this, 2);
+loop:   for (MinecartManiaSign sign : signList) {
+			if (!sign.isValid()) {
+				continue;
+			}
 			for (int i = 0; i < 4; i++) {
-				//Temporarily update old signs
-				if (sign.getLine(i).contains("[North]")) {
-					sign.setLine(i, "[Launch North]");
-					sign.update();
-				}
-				if (sign.getLine(i).contains("[East]")) {
-					sign.setLine(i, "[Launch East]");
-					sign.update();
-				}
-				if (sign.getLine(i).contains("[South]")) {
-					sign.setLine(i, "[Launch South]");
-					sign.update();
-				}
-				if (sign.getLine(i).contains("[West]")) {
-					sign.setLine(i, "[Launch West]");
-					sign.update();
-				}
-				if (sign.getLine(i).toLowerCase().contains("launch north")) {
-					if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX()-1, getY(), getZ(), 2, DirectionUtils.CompassDirection.NORTH)) {
-						sign.setLine(i, "[Launch North]");
-						sign.update();
-						setMotion(DirectionUtils.CompassDirection.NORTH, 0.6D);
-						break loop;
-					}
-				}
-				if (sign.getLine(i).toLowerCase().contains("launch east")) {
-					if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX(), getY(), getZ()-1, 2, DirectionUtils.CompassDirection.EAST)) {
-						sign.setLine(i, "[Launch East]");
-						sign.update();
-						setMotion(DirectionUtils.CompassDirection.EAST, 0.6D);
-						break loop;
-					}
-				}
-				if (sign.getLine(i).toLowerCase().contains("launch south")) {
-					if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX()+1, getY(), getZ(), 2, DirectionUtils.CompassDirection.SOUTH)) {
-						sign.setLine(i, "[Launch South]");
-						sign.update();
-						setMotion(DirectionUtils.CompassDirection.SOUTH, 0.6D);
-						break loop;
-					}
-				}
-				if (sign.getLine(i).toLowerCase().contains("launch west")) {
-					if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX(), getY(), getZ()+1, 2, DirectionUtils.CompassDirection.WEST)) {
-						sign.setLine(i, "[Launch West]");
-						sign.update();
-						setMotion(DirectionUtils.CompassDirection.WEST, 0.6D);
-						break loop;
-					}
-				}
-				if (sign.getLine(i).toLowerCase().contains("previous dir")) {
-					if (!this.getPreviousFacingDir().equals(DirectionUtils.CompassDirection.NO_DIRECTION)) {
-						if (MinecartUtils.validMinecartTrackAnyDirection(minecart.getWorld(), getX(), getY(), getZ()+1, 2)) {
-							sign.setLine(i, "[Previous Dir]");
-							sign.update();
-							setMotion(this.getPreviousFacingDir(), 0.6D);
+				SignCommand command = sign.getCommand(i);
+				switch (command) {
+					case LAUNCH_NORTH:
+					case LAUNCH_EAST:
+					case LAUNCH_SOUTH:
+					case LAUNCH_WEST:
+						CompassDirection direction = command.getDirection();
+						if (MinecartUtils.walkTrack(getWorld(), getX() + DirectionUtils.getOffsetX(direction), getY(), getZ() + DirectionUtils.getOffsetZ(direction), 2, direction, path).isValid()) {
+							sign.setLine(i, command.getText());
+							setMotion(direction, 0.6D);
 							break loop;
 						}
-					}
+						break;
+					case PREVIOUS_DIR:
+						if (!this.getPreviousFacingDir().equals(DirectionUtils.CompassDirection.NO_DIRECTION)) {
+							CompassDirection previous = this.getPreviousFacingDir();
+							if (MinecartUtils.walkTrack(getWorld(), getX() + DirectionUtils.getOffsetX(previous), getY(), getZ() + DirectionUtils.getOffsetZ(previous), 2, previous, path).isValid()) {
+								sign.setLine(i, command.getText());
+								setMotion(this.getPreviousFacingDir(), 0.6D);
+								break loop;
+							}
+						}
+						break;
 				}
 			}
 		}
 		if (!isMoving()) {
-			if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX()-1, getY(), getZ(), 2, DirectionUtils.CompassDirection.NORTH)) {
-				setMotion(DirectionUtils.CompassDirection.NORTH, 0.6D);
-			}
-			else if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX(), getY(), getZ()-1, 2, DirectionUtils.CompassDirection.EAST)) {
-				setMotion(DirectionUtils.CompassDirection.EAST, 0.6D);
-			}
-			else if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX()+1, getY(), getZ(), 2, DirectionUtils.CompassDirection.SOUTH)) {
-				setMotion(DirectionUtils.CompassDirection.SOUTH, 0.6D);
-			}
-			else if (MinecartUtils.validMinecartTrack(minecart.getWorld(), getX(), getY(), getZ()+1, 2, DirectionUtils.CompassDirection.WEST)) {
-				setMotion(DirectionUtils.CompassDirection.WEST, 0.6D);
+			CompassDirection[] directions = { CompassDirection.NORTH, CompassDirection.EAST, CompassDirection.SOUTH, CompassDirection.WEST };
+			for (CompassDirection direction : directions) {
+				if (MinecartUtils.walkTrack(getWorld(), getX() + DirectionUtils.getOffsetX(direction), getY(), getZ() + DirectionUtils.getOffsetZ(direction), 2, direction, path).isValid()) {
+					setMotion(direction, 0.6D);
+					break;
+				}
 			}
 		}
 		
 		//Create event, then stop the cart and wait for the results
-		MinecartLaunchedEvent mle = new MinecartLaunchedEvent(this, minecart.getVelocity().clone());
+		MinecartLaunchedEvent mle = new MinecartLaunchedEvent(this, new Vector(getMotionX(), getMotionY(), getMotionZ()));
 		stopCart();
-		MinecartManiaCore.server.getPluginManager().callEvent(mle);
+		fireEvent(mle);
 		if (mle.isActionTaken()) {
 			return;
 		}
 		else {
-			minecart.setVelocity(mle.getLaunchSpeed());
+			Vector speed = mle.getLaunchSpeed();
+			setMotion(speed.getX(), speed.getY(), speed.getZ());
 		}
 	}
 
@@ -416,16 +610,25 @@ loop:   for (Sign sign : signList) {
 
 	public boolean doEjectorBlock() {
 		if (getBlockIdBeneath() == MinecartManiaWorld.getEjectorBlockId() && !isPoweredBeneath()) {
-			if (minecart.getPassenger() != null) {
-				return minecart.eject();
-			}
+			return eject();
+		}
+		return false;
+	}
+	
+	/**
+	 * Ejects any passenger in this minecart
+	 * @return true if a passenger was ejected
+	 */
+	public boolean eject() {
+		if (minecart.getPassenger() != null) {
+			return minecart.eject();
 		}
 		return false;
 	}
 	
 	public void doRealisticFriction() {
 		if (minecart.getPassenger() == null && isOnRails()) {
-			setMotion(getMotionX() * 1.03774, getMotionY(), getMotionZ()* 1.03774);
+			scaleMotion(1.03774, 1.0D, 1.03774);
     	}
 	}
 	
@@ -444,7 +647,7 @@ loop:   for (Sign sign : signList) {
 	}
 	
 	public boolean isOnRails() {
-		return MinecartManiaWorld.getBlockAt(minecart.getWorld(), getX(), getY(), getZ()).getTypeId() == Material.RAILS.getId();
+		return MinecartManiaWorld.getBlockIdAt(getWorld(), getX(), getY(), getZ()) == Material.RAILS.getId();
 	}
 	
 	/**
@@ -452,33 +655,90 @@ loop:   for (Sign sign : signList) {
 	 **/
 	public boolean isAtIntersection() {
 		if (this.isOnRails()) {
-			return MinecartUtils.isAtIntersection(minecart.getWorld(), getX(), getY(), getZ());
+			return MinecartManiaWorld.getRailGraph(getWorld()).isIntersection(getX(), getY(), getZ());
 		}
 		return false;
 	}
 	
+	/**
+	 ** Sets the named destination this minecart is routed to at intersections, or null to stop routing it
+	 ** @param the name of the destination, see RailRouter
+	 **/
+	public void setDestination(String destination) {
+		setDataValue("Destination", destination);
+	}
+	
+	/**
+	 ** Returns the named destination this minecart is routed to, or null if it has none
+	 **/
+	public String getDestination() {
+		Object destination = getDataValue("Destination");
+		return destination == null ? null : destination.toString();
+	}
+	
+	/**
+	 ** Turns the intersection this minecart is on toward its destination, if it has one and a route to it is known.
+	 ** Returns true if the minecart was routed.
+	 **/
+	public boolean followRoute() {
+		String destination = getDestination();
+		if (destination == null) {
+			return false;
+		}
+		CompassDirection next = MinecartManiaWorld.getRailRouter(getWorld()).getNextDirection(destination, getX(), getY(), getZ());
+		if (next == CompassDirection.NO_DIRECTION) {
+			return false;
+		}
+		CompassDirection facing = getDirectionOfMotion();
+		if (next == DirectionUtils.getOppositeDirection(facing)) {
+			reverse();
+			return true;
+		}
+		int data = DirectionUtils.getMinetrackRailDataForDirection(next, facing);
+		if (data == -1) {
+			return false;
+		}
+		if (MinecartManiaWorld.getBlockData(getWorld(), getX(), getY(), getZ()) != data) {
+			MinecartManiaWorld.setBlockData(getWorld(), getX(), getY(), getZ(), data);
+		}
+		return true;
+	}
+	
 	public Block getBlockTypeAhead() {
-		return DirectionUtils.getBlockTypeAhead(minecart.getWorld(), getDirectionOfMotion(), getX(), getY(), getZ());
+		return DirectionUtils.getBlockTypeAhead(getWorld(), getDirectionOfMotion(), getX(), getY(), getZ());
 	}
 	
 	public Block getBlockTypeBehind() {
-		return DirectionUtils.getBlockTypeAhead(minecart.getWorld(), DirectionUtils.getOppositeDirection(getDirectionOfMotion()), getX(), getY(), getZ());
+		return DirectionUtils.getBlockTypeAhead(getWorld(), DirectionUtils.getOppositeDirection(getDirectionOfMotion()), getX(), getY(), getZ());
 	}
 
-	public void updateCalendar() {
-		Calendar current = Calendar.getInstance();
-		if (cal.get(Calendar.SECOND) != current.get(Calendar.SECOND)) {
-			MinecartTimeEvent e = new MinecartTimeEvent(this, cal, current);
-			MinecartManiaCore.server.getPluginManager().callEvent(e);
-			cal = current;
+	/**
+	 ** Fires a MinecartTimeEvent if the second of the MinecartManiaClock has passed since this minecart last saw it
+	 **/
+	public void updateClock() {
+		long second = MinecartManiaClock.getSecond();
+		if (second != lastSecond) {
+			if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_TIME)) {
+				MinecartTimeEvent e = new MinecartTimeEvent(this, lastSecond, second);
+				fireEvent(e);
+			}
+			lastSecond = second;
 		}
 	}
 	
+	/**
+	 ** @deprecated use updateClock
+	 **/
+	@Deprecated
+	public void updateCalendar() {
+		updateClock();
+	}
+	
 	public MinecartManiaMinecart getAdjacentMinecartFromDirection(DirectionUtils.CompassDirection direction) {
-		if (direction == DirectionUtils.CompassDirection.NORTH) return MinecartManiaWorld.getMinecartManiaMinecartAt(getX()-1, getY(), getZ());
-		if (direction == DirectionUtils.CompassDirection.EAST) return MinecartManiaWorld.getMinecartManiaMinecartAt(getX(), getY(), getZ()-1);
-		if (direction == DirectionUtils.CompassDirection.SOUTH) return MinecartManiaWorld.getMinecartManiaMinecartAt(getX()+1, getY(), getZ());
-		if (direction == DirectionUtils.CompassDirection.WEST) return MinecartManiaWorld.getMinecartManiaMinecartAt(getX(), getY(), getZ()+1);
+		if (direction == DirectionUtils.CompassDirection.NORTH) return MinecartManiaWorld.getMinecartManiaMinecartAt(getWorld(), getX()-1, getY(), getZ());
+		if (direction == DirectionUtils.CompassDirection.EAST) return MinecartManiaWorld.getMinecartManiaMinecartAt(getWorld(), getX(), getY(), getZ()-1);
+		if (direction == DirectionUtils.CompassDirection.SOUTH) return MinecartManiaWorld.getMinecartManiaMinecartAt(getWorld(), getX()+1, getY(), getZ());
+		if (direction == DirectionUtils.CompassDirection.WEST) return MinecartManiaWorld.getMinecartManiaMinecartAt(getWorld(), getX(), getY(), getZ()+1);
 		return null;
 	}
 	
@@ -492,19 +752,19 @@ loop:   for (Sign sign : signList) {
 	
 	public ArrayList<Block> getParallelBlocks() {
 		ArrayList<Block> blocks = new ArrayList<Block>(4);
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), getX()-1, getY(), getZ()));
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), getX()+1, getY(), getZ()));
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), getX(), getY(), getZ()-1));
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), getX(), getY(), getZ()+1));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), getX()-1, getY(), getZ()));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), getX()+1, getY(), getZ()));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), getX(), getY(), getZ()-1));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), getX(), getY(), getZ()+1));
 		return blocks;
 	}
 	
 	public ArrayList<Block> getPreviousLocationParallelBlocks() {
 		ArrayList<Block> blocks = new ArrayList<Block>(4);
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), previousLocation.getBlockX()-1, previousLocation.getBlockY(), previousLocation.getBlockZ()));
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), previousLocation.getBlockX()+1, previousLocation.getBlockY(), previousLocation.getBlockZ()));
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), previousLocation.getBlockX(), previousLocation.getBlockY(), previousLocation.getBlockZ()-1));
-		blocks.add(MinecartManiaWorld.getBlockAt(minecart.getWorld(), previousLocation.getBlockX(), previousLocation.getBlockY(), previousLocation.getBlockZ()+1));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), previousLocation.getBlockX()-1, previousLocation.getBlockY(), previousLocation.getBlockZ()));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), previousLocation.getBlockX()+1, previousLocation.getBlockY(), previousLocation.getBlockZ()));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), previousLocation.getBlockX(), previousLocation.getBlockY(), previousLocation.getBlockZ()-1));
+		blocks.add(MinecartManiaWorld.getBlockAt(getWorld(), previousLocation.getBlockX(), previousLocation.getBlockY(), previousLocation.getBlockZ()+1));
 		return blocks;
 	}
 	
@@ -584,8 +844,9 @@ loop:   for (Sign sign : signList) {
 				x = Integer.valueOf(StringUtils.getNumber(split[0]));
 				y = Integer.valueOf(StringUtils.getNumber(split[1]));
 				z = Integer.valueOf(StringUtils.getNumber(split[2]));
-				if (MinecartManiaWorld.getBlockAt(minecart.getWorld(), x, y, z).getState() instanceof Chest) {
-					return MinecartManiaWorld.getMinecartManiaChest((Chest)MinecartManiaWorld.getBlockAt(minecart.getWorld(), x, y, z).getState());
+				MinecartManiaChest chest = MinecartManiaWorld.getMinecartManiaChest(minecart.getWorld(), x, y, z);
+				if (chest != null) {
+					return chest;
 				}
 			}
 			catch (Exception e) {
@@ -653,7 +914,7 @@ loop:   for (Sign sign : signList) {
 		
 		//Fire destroyed event
 		MinecartManiaMinecartDestroyedEvent mmmee = new MinecartManiaMinecartDestroyedEvent(this);
-		MinecartManiaCore.server.getPluginManager().callEvent(mmmee);
+		MinecartManiaEventBus.callEvent(mmmee);
 		
 		MinecartManiaWorld.delMinecartManiaMinecart(minecart.getEntityId());
 		minecart.remove();
@@ -667,44 +928,64 @@ loop:   for (Sign sign : signList) {
 		return entityDetectionRange;
 	}
 
+	/**
+	 ** Sets the minimum number of ticks between checks for entities near this minecart
+	 ** @param ticks between checks
+	 **/
+	public void setEntityScanInterval(int ticks) {
+		this.entityScanInterval = ticks;
+	}
+
+	public int getEntityScanInterval() {
+		return entityScanInterval;
+	}
+
+	long getLastEntityScanTick() {
+		return lastEntityScanTick;
+	}
+
+	void setLastEntityScanTick(long tick) {
+		this.lastEntityScanTick = tick;
+	}
+
 	public void updateChunks() {
-		if (MinecartManiaWorld.isKeepMinecartsLoaded()) {
-			Chunk current = minecart.getLocation().getBlock().getChunk();
-			int range = 1;
-			for (int dx = -(range); dx <= range; dx++){
-				for (int dz = -(range); dz <= range; dz++){
-					Chunk chunk = current.getWorld().getChunkAt(current.getX() + dx, current.getZ() + dz);
-					if (!current.getWorld().isChunkLoaded(chunk)) {
-						current.getWorld().loadChunk(chunk);
-					}
-				}
-			}
-		}
+		MinecartManiaWorld.updateChunkTickets(this);
 	}
 	
 	public boolean isApproaching(Vector v) {
 		if (!isMoving()) {
 			return false;
 		}
-		CompassDirection direction = getDirectionOfMotion();
+		return isApproaching(getDirectionOfMotion(), getExactX(), getExactZ(), v.getX(), v.getZ());
+	}
+	
+	/**
+	 ** Returns true if a minecart at the given position, moving in the given direction, is approaching the target position
+	 ** @param direction of motion of the minecart
+	 ** @param x position of the minecart
+	 ** @param z position of the minecart
+	 ** @param targetX position
+	 ** @param targetZ position
+	 **/
+	public static boolean isApproaching(CompassDirection direction, double x, double z, double targetX, double targetZ) {
 		if (direction == CompassDirection.NORTH) {
-			if (minecart.getLocation().getX() - v.getX() < 3.0D && minecart.getLocation().getX() - v.getX() > 0.0D) {
-				return Math.abs(minecart.getLocation().getZ() - v.getZ()) < 1.5D;
+			if (x - targetX < 3.0D && x - targetX > 0.0D) {
+				return Math.abs(z - targetZ) < 1.5D;
 			}
 		}
 		if (direction == CompassDirection.SOUTH) {
-			if (minecart.getLocation().getX() - v.getX() > -3.0D && minecart.getLocation().getX() - v.getX() < 0.0D) {
-				return Math.abs(minecart.getLocation().getZ() - v.getZ()) < 1.5D;
+			if (x - targetX > -3.0D && x - targetX < 0.0D) {
+				return Math.abs(z - targetZ) < 1.5D;
 			}
 		}
 		if (direction == CompassDirection.EAST) {
-			if (minecart.getLocation().getZ() - v.getZ() < 3.0D && minecart.getLocation().getZ() - v.getZ() > 0.0D) {
-				return Math.abs(minecart.getLocation().getX() - v.getX()) < 1.5D;
+			if (z - targetZ < 3.0D && z - targetZ > 0.0D) {
+				return Math.abs(x - targetX) < 1.5D;
 			}
 		}
 		if (direction == CompassDirection.WEST) {
-			if (minecart.getLocation().getZ() - v.getZ() > -3.0D && minecart.getLocation().getZ() - v.getZ() < 0.0D) {
-				return Math.abs(minecart.getLocation().getX() - v.getX()) < 1.5D;
+			if (z - targetZ > -3.0D && z - targetZ < 0.0D) {
+				return Math.abs(x - targetX) < 1.5D;
 			}
 		}
 		
@@ -0,0 +1,165 @@
+package com.afforess.minecartmaniacore;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Sign;
+
+/**
+ * A cached copy of the text of a sign, kept in the sign index of MinecartManiaWorld.
+ * Lines are stored as written and in lower case, so they can be searched without reading the sign from the world.
+ * @author Afforess
+ */
+public class MinecartManiaSign {
+	private final World world;
+	private final int x, y, z;
+	private final String[] lines = new String[4];
+	private final String[] lowerCaseLines = new String[4];
+	private final SignCommand[] commands = new SignCommand[4];
+	//Set whenever the text changes, so the commands are parsed again
+	private boolean dirty = true;
+
+	public MinecartManiaSign(World world, int x, int y, int z, String[] lines) {
+		this.world = world;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		setLines(lines);
+	}
+
+	public MinecartManiaSign(Sign sign) {
+		this(sign.getWorld(), sign.getX(), sign.getY(), sign.getZ(), sign.getLines());
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getZ() {
+		return z;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public Location getLocation() {
+		return new Location(world, x, y, z);
+	}
+
+	/**
+	 ** Returns the text of the given line
+	 ** @param the line, 0 - 3
+	 **/
+	public String getLine(int line) {
+		return lines[line];
+	}
+
+	/**
+	 ** Returns the text of the given line in lower case
+	 ** @param the line, 0 - 3
+	 **/
+	public String getLowerCaseLine(int line) {
+		return lowerCaseLines[line];
+	}
+
+	/**
+	 ** Sets the text of the given line, on the sign in the world and in the cache
+	 ** @param the line, 0 - 3
+	 ** @param the new text
+	 **/
+	public void setLine(int line, String text) {
+		if (text == null) {
+			text = "";
+		}
+		if (text.equals(lines[line])) {
+			return;
+		}
+		Sign sign = getSign();
+		if (sign != null) {
+			sign.setLine(line, text);
+			sign.update();
+		}
+		lines[line] = text;
+		lowerCaseLines[line] = text.toLowerCase();
+		dirty = true;
+	}
+
+	/**
+	 ** Returns the command written on the given line. Lines are only parsed again when the text of the sign changes,
+	 ** and signs using the old command format are rewritten the first time they are parsed.
+	 ** @param the line, 0 - 3
+	 **/
+	public SignCommand getCommand(int line) {
+		if (dirty) {
+			parseCommands();
+		}
+		return commands[line];
+	}
+
+	private void parseCommands() {
+		for (int i = 0; i < 4; i++) {
+			commands[i] = SignCommand.parse(lines[i], lowerCaseLines[i]);
+		}
+		for (int i = 0; i < 4; i++) {
+			String legacy = commands[i].getLegacyText();
+			if (legacy != null && lines[i].contains(legacy)) {
+				setLine(i, commands[i].getText());
+			}
+		}
+		//Rewriting a legacy line keeps its command, so the commands parsed above are still correct
+		dirty = false;
+	}
+
+	/**
+	 ** Returns the sign in the world this cache entry is for, or null if it is no longer a sign
+	 **/
+	public Sign getSign() {
+		BlockState state = MinecartManiaWorld.getBlockAt(world, x, y, z).getState();
+		if (state instanceof Sign) {
+			return (Sign)state;
+		}
+		return null;
+	}
+
+	/**
+	 ** Updates the cache from the given sign in the world, if their text differs. For callers that already read the sign from the world,
+	 ** otherwise the cache is kept up to date by sign change, block break and chunk unload events.
+	 ** @param the sign in the world at this sign's position
+	 **/
+	public void refresh(Sign sign) {
+		String[] text = sign.getLines();
+		for (int i = 0; i < 4; i++) {
+			String line = text != null && i < text.length && text[i] != null ? text[i] : "";
+			if (!line.equals(lines[i])) {
+				setLines(text);
+				return;
+			}
+		}
+	}
+
+	/**
+	 ** Returns true if the block at this sign's position is still a sign
+	 **/
+	public boolean isValid() {
+		return isSign(MinecartManiaWorld.getBlockIdAt(world, x, y, z));
+	}
+
+	void setLines(String[] text) {
+		for (int i = 0; i < 4; i++) {
+			String line = text != null && i < text.length && text[i] != null ? text[i] : "";
+			lines[i] = line;
+			lowerCaseLines[i] = line.toLowerCase();
+		}
+		dirty = true;
+	}
+
+	public static boolean isSign(int id) {
+		return id == Material.SIGN_POST.getId() || id == Material.WALL_SIGN.getId();
+	}
+}
@@ -3,16 +3,35 @@ package com.afforess.minecartmaniacore;
 import org.bukkit.Material;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+
+import com.afforess.minecartmaniacore.utils.InventoryUtils;
+import com.afforess.minecartmaniacore.utils.ItemCountIndex;
 /**
  * This class represents a single container (unlike double containers, like a double chest) and provides utility methods for dealing with items inside the container
  * @author Afforess
  */
 public abstract class MinecartManiaSingleContainer implements MinecartManiaInventory{
 	private Inventory inventory;
+	private volatile boolean valid = true;
+	private volatile ItemCountIndex index = null;
 	public MinecartManiaSingleContainer(Inventory i) {
 		inventory = i;
 	}
 	
+	/**
+	 * Returns false once the block this container represents has been broken or replaced, or its chunk unloaded.
+	 * An invalid container should be looked up again from MinecartManiaWorld.
+	 * 
+	 * @return true if this container is still valid
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+	
+	void invalidate() {
+		valid = false;
+	}
+	
 	/**
 	 * The bukkit inventory that this container represents
 	 * 
@@ -32,6 +51,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 */
 	public void updateInventory(Inventory inventory) {
 		this.inventory = inventory;
+		index = null;
 	}
 
 	/**
@@ -44,41 +64,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 		if (item == null) {
 			return true;
 		}
-		if (item.getTypeId() == Material.AIR.getId()) {
-			return false;
-		}
-		//Backup contents
-		ItemStack[] backup = getContents().clone();
-		ItemStack backupItem = new ItemStack(item.getTypeId(), item.getAmount(), item.getDurability());
-		
-		//First attempt to merge the itemstack with existing item stacks that aren't full (< 64)
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == item.getTypeId() && getItem(i).getDurability() == item.getDurability()) {
-					if (getItem(i).getAmount() + item.getAmount() <= 64) {
-						setItem(i, new ItemStack(item.getTypeId(), getItem(i).getAmount() + item.getAmount(), item.getDurability()));
-						return true;
-					}
-					else {
-						int diff = getItem(i).getAmount() + item.getAmount() - 64;
-						setItem(i, new ItemStack(item.getTypeId(), 64, item.getDurability()));
-						item = new ItemStack(item.getTypeId(), diff, item.getDurability());
-					}
-				}
-			}
-		}
-		
-		//Attempt to add the item to an empty slot
-		int emptySlot = firstEmpty();
-		if (emptySlot > -1) {
-			setItem(emptySlot, item);
-			return true;
-		}
-			
-		//if we fail, reset the inventory and item back to previous values
-		getInventory().setContents(backup);
-		item = backupItem;
-		return false;
+		return InventoryUtils.addItem(this, item.getTypeId(), item.getAmount(), item.getDurability());
 	}
 	
 	/**
@@ -109,31 +95,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return true if the items were successfully removed
 	 */
 	public boolean removeItem(int type, int amount, short durability) {
-		//Backup contents
-		ItemStack[] backup = getContents().clone();
-		
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == type && (durability == -1 || (getItem(i).getDurability() == durability))) {
-					if (getItem(i).getAmount() - amount > 0) {
-						setItem(i, new ItemStack(type, getItem(i).getAmount() - amount, durability));
-						return true;
-					}
-					else if (getItem(i).getAmount() - amount == 0) {
-						setItem(i, null);
-						return true;
-					}
-					else{
-						amount -=  inventory.getItem(i).getAmount();
-						setItem(i, null);
-					}
-				}
-			}
-		}
-
-		//if we fail, reset the inventory back to previous values
-		getInventory().setContents(backup);
-		return false;
+		return InventoryUtils.removeItem(this, type, amount, durability);
 	}
 
 	/**
@@ -178,6 +140,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 		else {
 			getInventory().setItem(slot, item);
 		}
+		index = null;
 	}
 
 	/**
@@ -185,7 +148,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return the first empty slot
 	 */
 	public int firstEmpty() {
-		return getInventory().firstEmpty();
+		return InventoryUtils.firstEmpty(getContents());
 	}
 
 	/**
@@ -203,6 +166,58 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	public ItemStack[] getContents() {
 		return getInventory().getContents();
 	}
+	
+	/**
+	 * Replaces the contents of this inventory. Null entries are empty slots.
+	 * @param contents to set
+	 */
+	public void setContents(ItemStack[] contents) {
+		getInventory().setContents(contents);
+		index = null;
+	}
+	
+	/**
+	 * Gets a summary of the item counts and slots of this inventory. It is built from a single read of the contents the first time it is needed,
+	 * and kept until the contents are changed through this object, or the server tick ends. Changes made through getInventory() or by other plugins
+	 * are not seen until then, so the index is only for read only checks. Slots to write to are found from the live contents, see first and firstEmpty.
+	 * @return the item count index
+	 */
+	public ItemCountIndex getItemCountIndex() {
+		ItemCountIndex index = this.index;
+		if (index == null || !index.isCurrent()) {
+			index = new ItemCountIndex(getContents());
+			this.index = index;
+		}
+		return index;
+	}
+	
+	/**
+	 * Attempts to add all of the given item stacks. If any of them do not fit, the contents are not changed.
+	 * @param items to add
+	 * @return true if all of the items were added
+	 */
+	public boolean addAll(ItemStack[] items) {
+		return InventoryUtils.addAll(this, items);
+	}
+	
+	/**
+	 * Removes every item stack accepted by the filter
+	 * @param filter selecting the stacks to remove
+	 * @return the item stacks removed
+	 */
+	public ItemStack[] removeAll(ItemFilter filter) {
+		return InventoryUtils.removeAll(this, filter);
+	}
+	
+	/**
+	 * Moves every item stack accepted by the filter into the given inventory, as far as they fit
+	 * @param inventory to move the items to
+	 * @param filter selecting the stacks to move, or null for all stacks
+	 * @return the number of items moved
+	 */
+	public int transferTo(MinecartManiaInventory inventory, ItemFilter filter) {
+		return InventoryUtils.transfer(this, inventory, filter);
+	}
 
 	/**
 	 * Get's the first slot containing the given material, or -1 if none contain it
@@ -239,14 +254,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return the first slot with the given type id and durability
 	 */
 	public int first(int type, short durability) {
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == type && ((durability == -1 || getItem(i).getDurability() == -1) || (getItem(i).getDurability() == durability))) {
-					return i;
-				}
-			}
-		}
-		return -1;
+		return InventoryUtils.first(getContents(), type, durability);
 	}
 	
 	/**
@@ -255,7 +263,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return true if the material is found
 	 */
 	public boolean contains(Material material) {
-		return first(material) != -1;
+		return getItemCountIndex().contains(material.getId(), (short) -1);
 	}
 	
 	/**
@@ -264,7 +272,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return true if the Item is found
 	 */
 	public boolean contains(Item item){
-		return first(item) != -1;
+		return getItemCountIndex().contains(item.getId(), (short) (item.hasData() ? item.getData() : -1));
 	}
 
 	/**
@@ -273,7 +281,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return true if an item matching the type id is found
 	 */
 	public boolean contains(int type) {
-		return first(type) != -1;
+		return getItemCountIndex().contains(type, (short) -1);
 	}
 	
 	/**
@@ -283,7 +291,7 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return true if an item matching the type id and durability is found
 	 */
 	public boolean contains(int type, short durability) {
-		return first(type, durability) != -1;
+		return getItemCountIndex().contains(type, durability);
 	}
 
 	/**
@@ -291,12 +299,6 @@ public abstract class MinecartManiaSingleContainer implements MinecartManiaInven
 	 * @return true if the inventory contains no items
 	 */
 	public boolean isEmpty() {
-		for (ItemStack i : getContents()) {
-			//I hate you too, air.
-			if (i != null && i.getType() != Material.AIR) {
-				return false;
-			}
-		}
-		return true;
+		return getItemCountIndex().isEmpty();
 	}
 }
@@ -5,11 +5,15 @@ import org.bukkit.entity.Minecart;
 import org.bukkit.entity.StorageMinecart;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+
+import com.afforess.minecartmaniacore.utils.InventoryUtils;
+import com.afforess.minecartmaniacore.utils.ItemCountIndex;
 /**
  * This class represents a Minecart Mania Storage Minecart, that wraps a bukkit minecart (which in turn, wraps a Minecraft EntityMinecart)
  * @author Afforess
  */
 public class MinecartManiaStorageCart extends MinecartManiaMinecart implements MinecartManiaInventory{
+	private volatile ItemCountIndex index = null;
 
 	/**
 	 * Creates a storage minecart from the given bukkit minecart
@@ -46,41 +50,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 		if (item == null) {
 			return true;
 		}
-		if (item.getTypeId() == Item.AIR.getId()) {
-			return false;
-		}
-		//Backup contents
-		ItemStack[] backup = getContents().clone();
-		ItemStack backupItem = new ItemStack(item.getTypeId(), item.getAmount(), item.getDurability());
-		
-		//First attempt to merge the itemstack with existing item stacks that aren't full (< 64)
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == item.getTypeId() && getItem(i).getDurability() == item.getDurability()) {
-					if (getItem(i).getAmount() + item.getAmount() <= 64) {
-						setItem(i, new ItemStack(item.getTypeId(), getItem(i).getAmount() + item.getAmount(), item.getDurability()));
-						return true;
-					}
-					else {
-						int diff = getItem(i).getAmount() + item.getAmount() - 64;
-						setItem(i, new ItemStack(item.getTypeId(), getItem(i).getAmount() + item.getAmount(), item.getDurability()));
-						item = new ItemStack(item.getTypeId(), diff, item.getDurability());
-					}
-				}
-			}
-		}
-		
-		//Attempt to add the item to an empty slot
-		int emptySlot = firstEmpty();
-		if (emptySlot > -1) {
-			setItem(emptySlot, item);
-			return true;
-		}
-			
-		//if we fail, reset the inventory and item back to previous values
-		getInventory().setContents(backup);
-		item = backupItem;
-		return false;
+		return InventoryUtils.addItem(this, item.getTypeId(), item.getAmount(), item.getDurability());
 	}
 	
 	/**
@@ -109,31 +79,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 */
 	@Override
 	public boolean removeItem(int type, int amount, short durability) {
-		//Backup contents
-		ItemStack[] backup = getContents().clone();
-		
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == type && (durability == -1 || (getItem(i).getDurability() == durability))) {
-					if (getItem(i).getAmount() - amount > 0) {
-						setItem(i, new ItemStack(type, getItem(i).getAmount() - amount, durability));
-						return true;
-					}
-					else if (getItem(i).getAmount() - amount == 0) {
-						setItem(i, null);
-						return true;
-					}
-					else{
-						amount -=  getItem(i).getAmount();
-						setItem(i, null);
-					}
-				}
-			}
-		}
-
-		//if we fail, reset the inventory back to previous values
-		getInventory().setContents(backup);
-		return false;
+		return InventoryUtils.removeItem(this, type, amount, durability);
 	}
 
 	/**
@@ -171,6 +117,58 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 		return getInventory().getContents();
 	}
 	
+	/**
+	 * Replaces the contents of this inventory. Null entries are empty slots.
+	 * @param contents to set
+	 */
+	public void setContents(ItemStack[] contents) {
+		getInventory().setContents(contents);
+		index = null;
+	}
+	
+	/**
+	 * Gets a summary of the item counts and slots of this inventory. It is built from a single read of the contents the first time it is needed,
+	 * and kept until the contents are changed through this object, or the server tick ends. Changes made through getInventory() or by other plugins
+	 * are not seen until then, so the index is only for read only checks. Slots to write to are found from the live contents, see first and firstEmpty.
+	 * @return the item count index
+	 */
+	public ItemCountIndex getItemCountIndex() {
+		ItemCountIndex index = this.index;
+		if (index == null || !index.isCurrent()) {
+			index = new ItemCountIndex(getContents());
+			this.index = index;
+		}
+		return index;
+	}
+	
+	/**
+	 * Attempts to add all of the given item stacks. If any of them do not fit, the contents are not changed.
+	 * @param items to add
+	 * @return true if all of the items were added
+	 */
+	public boolean addAll(ItemStack[] items) {
+		return InventoryUtils.addAll(this, items);
+	}
+	
+	/**
+	 * Removes every item stack accepted by the filter
+	 * @param filter selecting the stacks to remove
+	 * @return the item stacks removed
+	 */
+	public ItemStack[] removeAll(ItemFilter filter) {
+		return InventoryUtils.removeAll(this, filter);
+	}
+	
+	/**
+	 * Moves every item stack accepted by the filter into the given inventory, as far as they fit
+	 * @param inventory to move the items to
+	 * @param filter selecting the stacks to move, or null for all stacks
+	 * @return the number of items moved
+	 */
+	public int transferTo(MinecartManiaInventory inventory, ItemFilter filter) {
+		return InventoryUtils.transfer(this, inventory, filter);
+	}
+	
 	/**
 	 * Gets the itemstack at the given slot, or null if empty
 	 * @param slot to get
@@ -194,6 +192,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 		else {
 			getInventory().setItem(slot, item);
 		}
+		index = null;
 	}
 	
 	/**
@@ -201,7 +200,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return the first empty slot in this storage minecart
 	 */
 	public int firstEmpty() {
-		return getInventory().firstEmpty();
+		return InventoryUtils.firstEmpty(getContents());
 	}
 	
 	/**
@@ -239,14 +238,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return the first slot with the given type id and durability
 	 */
 	public int first(int type, short durability) {
-		for (int i = 0; i < size(); i++) {
-			if (getItem(i) != null) {
-				if (getItem(i).getTypeId() == type && ((durability == -1 || getItem(i).getDurability() == -1) || (getItem(i).getDurability() == durability))) {
-					return i;
-				}
-			}
-		}
-		return -1;
+		return InventoryUtils.first(getContents(), type, durability);
 	}
 	
 	/**
@@ -255,7 +247,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return true if the material is found
 	 */
 	public boolean contains(Material material) {
-		return first(material) != -1;
+		return getItemCountIndex().contains(material.getId(), (short) -1);
 	}
 	
 	/**
@@ -264,7 +256,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return true if the Item is found
 	 */
 	public boolean contains(Item item){
-		return first(item) != -1;
+		return getItemCountIndex().contains(item.getId(), (short) (item.hasData() ? item.getData() : -1));
 	}
 
 	/**
@@ -273,7 +265,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return true if an item matching the type id is found
 	 */
 	public boolean contains(int type) {
-		return first(type) != -1;
+		return getItemCountIndex().contains(type, (short) -1);
 	}
 	
 	/**
@@ -283,7 +275,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return true if an item matching the type id and durability is found
 	 */
 	public boolean contains(int type, short durability) {
-		return first(type, durability) != -1;
+		return getItemCountIndex().contains(type, durability);
 	}
 
 	/**
@@ -291,13 +283,7 @@ public class MinecartManiaStorageCart extends MinecartManiaMinecart implements M
 	 * @return true if the inventory contains no items
 	 */
 	public boolean isEmpty() {
-		for (ItemStack i : getContents()) {
-			//I hate you too, air.
-			if (i != null && i.getType() != Material.AIR) {
-				return false;
-			}
-		}
-		return true;
+		return getItemCountIndex().isEmpty();
 	}
 
           public boolean isRedstonePower() {
@@ -1,19 +1,239 @@
 package com.afforess.minecartmaniacore;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MinecartManiaTaskScheduler {
+	private static final int QUEUE_SIZE = 1024;
+	private static ThreadPoolExecutor pool = null;
+	private static final ConcurrentHashMap<String, AtomicInteger> queueDepth = new ConcurrentHashMap<String, AtomicInteger>();
+	//Tasks the workers had no room for, submitted again next tick
+	private static final ConcurrentLinkedQueue<Task> deferred = new ConcurrentLinkedQueue<Task>();
+	private static final AtomicBoolean retryScheduled = new AtomicBoolean(false);
+	//Tasks waiting on the server scheduler for their delay to pass, dropped if the scheduler is shut down first
+	private static final Set<Task> waiting = Collections.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+	
+	private static synchronized ThreadPoolExecutor getPool() {
+		if (pool == null || pool.isShutdown()) {
+			int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			pool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Minecart Mania Worker-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			//If the workers can not keep up, try the task again next tick. Never run it on the thread that submitted it, which is usually the main thread.
+			pool.setRejectedExecutionHandler(new RejectedExecutionHandler() {
+				public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+					defer((Task)r);
+				}
+			});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+	
+	/** Stops the worker threads. Tasks that have already been queued are still run, tasks waiting for room in the queue
+	 ** or for their delay to pass are dropped.
+	 **/
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		retryScheduled.set(false);
+		Task task;
+		while ((task = deferred.poll()) != null) {
+			task.drop();
+		}
+		for (Task delayed : waiting) {
+			if (waiting.remove(delayed)) {
+				delayed.drop();
+			}
+		}
+	}
+	
+	private static void defer(Task task) {
+		deferred.add(task);
+		if (retryScheduled.compareAndSet(false, true)) {
+			int id = MinecartManiaCore.server.getScheduler().scheduleSyncDelayedTask(MinecartManiaCore.instance, new Runnable() {
+				public void run() {
+					retryDeferred();
+				}
+			}, 1);
+			if (id == -1) {
+				//The plugin is disabled, nothing will retry the tasks
+				retryScheduled.set(false);
+				shutdown();
+			}
+		}
+	}
+	
+	private static void retryDeferred() {
+		retryScheduled.set(false);
+		ThreadPoolExecutor executor = getPool();
+		for (int i = deferred.size(); i > 0 && executor.getQueue().remainingCapacity() > 0; i--) {
+			Task task = deferred.poll();
+			if (task == null) {
+				break;
+			}
+			executor.execute(task);
+		}
+		if (!deferred.isEmpty() && retryScheduled.compareAndSet(false, true)) {
+			MinecartManiaCore.server.getScheduler().scheduleSyncDelayedTask(MinecartManiaCore.instance, new Runnable() {
+				public void run() {
+					retryDeferred();
+				}
+			}, 1);
+		}
+	}
+	
+	private static AtomicInteger getQueueDepthCounter(String type) {
+		AtomicInteger depth = queueDepth.get(type);
+		if (depth == null) {
+			queueDepth.putIfAbsent(type, new AtomicInteger());
+			depth = queueDepth.get(type);
+		}
+		return depth;
+	}
+	
+	/** Returns the number of tasks of the given type that are waiting to run
+	 ** @param Type of task
+	 ** @return the number of waiting tasks
+	 **/
+	public static int getQueueDepth(String type) {
+		AtomicInteger depth = queueDepth.get(type);
+		return depth == null ? 0 : depth.get();
+	}
+	
+	/** Returns the number of tasks waiting to run, for each type of task that has been submitted
+	 ** @return map of task type to the number of waiting tasks
+	 **/
+	public static HashMap<String, Integer> getQueueDepths() {
+		HashMap<String, Integer> depths = new HashMap<String, Integer>();
+		for (Entry<String, AtomicInteger> e : queueDepth.entrySet()) {
+			depths.put(e.getKey(), e.getValue().get());
+		}
+		return depths;
+	}
+	
+	/** Runs the given task on a worker thread after the given number of delayed server ticks.
+	 ** If the workers are busy the task waits for the next tick, it is never run on the calling thread.
+	 ** @param Type of the task, used to track how many tasks of this type are waiting
+	 ** @param Task to run
+	 ** @param number of ticks before this task is run
+	 **/
+	public static void doAsyncTask(String type, Runnable task, int delay) {
+		doAsyncTask(type, task, delay, null);
+	}
+	
+	/** Runs the given task on a worker thread after the given number of delayed server ticks.
+	 ** If the workers are busy the task waits for the next tick, it is never run on the calling thread.
+	 ** @param Type of the task, used to track how many tasks of this type are waiting
+	 ** @param Task to run
+	 ** @param number of ticks before this task is run
+	 ** @param Task to run on the main thread instead, if the task is dropped because the scheduler was shut down before it could run. May be null.
+	 **/
+	public static void doAsyncTask(String type, Runnable task, int delay, Runnable dropped) {
+		AtomicInteger depth = getQueueDepthCounter(type);
+		depth.incrementAndGet();
+		Task worker = new Task(task, dropped, depth);
+		if (delay > 0) {
+			schedule(worker, delay);
+		}
+		else {
+			getPool().execute(worker);
+		}
+	}
+	
+	/** Waits on the server scheduler, which does not need a thread to do so, then hands the task off to the workers.
+	 ** @return the id of the server task, or -1 if it could not be scheduled, in which case the task is dropped
+	 **/
+	private static int schedule(final Task worker, int delay) {
+		waiting.add(worker);
+		int id = MinecartManiaCore.server.getScheduler().scheduleSyncDelayedTask(MinecartManiaCore.instance, new Runnable() {
+			public void run() {
+				if (waiting.remove(worker)) {
+					getPool().execute(worker);
+				}
+			}
+		}, delay);
+		if (id == -1 && waiting.remove(worker)) {
+			worker.drop();
+		}
+		return id;
+	}
+	
+	/** Runs the given task on a worker thread after the given number of delayed server ticks.
+	 ** @param Task to run
+	 ** @param number of ticks before this task is run
+	 **/
+	public static void doAsyncTask(Runnable task, int delay) {
+		doAsyncTask(task.getClass().getName(), task, delay);
+	}
+	
+	/** Runs the given task on a worker thread as soon as one is available.
+	 ** @param Task to run
+	 **/
+	public static void doAsyncTask(Runnable task) {
+		doAsyncTask(task.getClass().getName(), task, 0);
+	}
+	
+	/** Runs the given task on a worker thread after the given number of delayed server ticks.
+	 ** @param Type of the task, used to track how many tasks of this type are waiting
+	 ** @param Task to run
+	 ** @param number of ticks before this task is run
+	 ** @return the future result of the task. It is cancelled if the task is dropped because the scheduler was shut down before it could run.
+	 **/
+	public static <T> Future<T> doAsyncTask(String type, Callable<T> task, int delay) {
+		final FutureTask<T> future = new FutureTask<T>(task);
+		doAsyncTask(type, future, delay, new Runnable() {
+			public void run() {
+				future.cancel(false);
+			}
+		});
+		return future;
+	}
+	
+	/** Runs the given task on a worker thread as soon as one is available.
+	 ** @param Task to run
+	 ** @return the future result of the task
+	 **/
+	public static <T> Future<T> doAsyncTask(Callable<T> task) {
+		return doAsyncTask(task.getClass().getName(), task, 0);
+	}
 
 	/** Spawns a new thread that will run after the given number of delayed server ticks, invoking the given method, with the given class and parameters.
 	 ** @param Method to run
 	 ** @param Class to run the method from. If the class is static, null may be used.
 	 ** @param number of ticks before this task is run
 	 ** @param Parameters for the method.
-	 ** @return the id of the new task
+	 ** @return the id of the server task that hands the method off to a worker, which can be cancelled through the server scheduler
+	 ** until the delay has passed, or -1 if it could not be scheduled. These tasks are not counted in the queue depths.
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable, int)
 	 **/
 	public static int doAsyncTask(final Method m, final Object classOf, int delay, final Object...parameters){
 		Runnable a = new Runnable() { public void run() { try { m.invoke(classOf, parameters); } catch (Exception e) { e.printStackTrace(); } } };
-		return MinecartManiaCore.server.getScheduler().scheduleAsyncDelayedTask(MinecartManiaCore.instance, a, delay);
+		//Always goes through the server scheduler, even without a delay, so there is a real task id to return as before.
+		//A task cancelled there never runs, so it has a counter of its own instead of one shared by its type.
+		return schedule(new Task(a, null, new AtomicInteger(1)), delay);
 	}
 	
 	/** Spawns a new thread that will run after the given number of delayed server ticks, invoking the given static method and parameters.
@@ -21,6 +241,7 @@ public class MinecartManiaTaskScheduler {
 	 ** @param number of ticks before this task is run
 	 ** @param Parameters for the method.
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable, int)
 	 **/
 	public static int doAsyncTask(final Method m, int delay, final Object...parameters) {
 		return doAsyncTask(m, null, delay, parameters);
@@ -31,6 +252,7 @@ public class MinecartManiaTaskScheduler {
 	 ** @param Class to run the method from.
 	 ** @param number of ticks before this task is run
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable, int)
 	 **/
 	public static int doAsyncTask(final Method m, final Object classOf, int delay) {
 		return doAsyncTask(m, classOf, delay, (Object[])null);
@@ -40,6 +262,7 @@ public class MinecartManiaTaskScheduler {
 	 ** @param Method to run
 	 ** @param number of ticks before this task is run
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable, int)
 	 **/
 	public static int doAsyncTask(final Method m, int delay) {
 		return doAsyncTask(m, null, delay, (Object[])null);
@@ -50,6 +273,7 @@ public class MinecartManiaTaskScheduler {
 	 ** @param Class to run the method from. If the class is static, null may be used.
 	 ** @param Parameters for the method.
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable)
 	 **/
 	public static int doAsyncTask(final Method m, final Object classOf, final Object...parameters){
 		return doAsyncTask(m, classOf, 0, parameters);
@@ -59,6 +283,7 @@ public class MinecartManiaTaskScheduler {
 	 ** @param Method to run
 	 ** @param Parameters for the method.
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable)
 	 **/
 	public static int doAsyncTask(final Method m, final Object...parameters) {
 		return doAsyncTask(m, null, 0, parameters);
@@ -68,6 +293,7 @@ public class MinecartManiaTaskScheduler {
 	 ** @param Method to run
 	 ** @param Class to run the method from.
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable)
 	 **/
 	public static int doAsyncTask(final Method m, final Object classOf) {
 		return doAsyncTask(m, classOf, 0, (Object[])null);
@@ -76,8 +302,43 @@ public class MinecartManiaTaskScheduler {
 	/** Spawns a new thread that will run next server tick, invoking the given static method, with no parameters.
 	 ** @param Method to run
 	 ** @return the id of the new task
+	 ** @deprecated reflective invocation is slow, use doAsyncTask(Runnable)
 	 **/
 	public static int doAsyncTask(final Method m) {
 		return doAsyncTask(m, null, 0, (Object[])null);
 	}
+	
+	private static class Task implements Runnable {
+		private final Runnable task;
+		private final Runnable dropped;
+		private final AtomicInteger depth;
+		
+		Task(Runnable task, Runnable dropped, AtomicInteger depth) {
+			this.task = task;
+			this.dropped = dropped;
+			this.depth = depth;
+		}
+		
+		public void run() {
+			depth.decrementAndGet();
+			try {
+				task.run();
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		
+		void drop() {
+			depth.decrementAndGet();
+			if (dropped != null) {
+				try {
+					dropped.run();
+				}
+				catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
 }
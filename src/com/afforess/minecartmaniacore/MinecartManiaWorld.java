@@ -1,6 +1,8 @@
 package com.afforess.minecartmaniacore;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import net.minecraft.server.EntityMinecart;
@@ -27,20 +29,32 @@ import org.bukkit.material.Lever;
 import org.bukkit.material.MaterialData;
 import org.bukkit.Location;
 
+import com.afforess.minecartmaniacore.config.CoreConfiguration;
+import com.afforess.minecartmaniacore.config.Setting;
+import com.afforess.minecartmaniacore.config.SettingList;
+import com.afforess.minecartmaniacore.utils.LongHashMap;
+import com.afforess.minecartmaniacore.utils.MathUtils;
+
 public class MinecartManiaWorld {
-	private static ConcurrentHashMap<Integer,MinecartManiaMinecart> minecarts = new ConcurrentHashMap<Integer,MinecartManiaMinecart>();
-	private static ConcurrentHashMap<Location,MinecartManiaChest> chests = new ConcurrentHashMap<Location,MinecartManiaChest>();
-	private static ConcurrentHashMap<Location,MinecartManiaDispenser> dispensers = new ConcurrentHashMap<Location,MinecartManiaDispenser>();
-	private static ConcurrentHashMap<Location,MinecartManiaFurnace> furnaces = new ConcurrentHashMap<Location,MinecartManiaFurnace>();
+	private static LongHashMap<MinecartManiaMinecart> minecarts = new LongHashMap<MinecartManiaMinecart>();
+	private static ConcurrentHashMap<String,ConcurrentHashMap<Long,MinecartManiaMinecart[]>> minecartPositions = new ConcurrentHashMap<String,ConcurrentHashMap<Long,MinecartManiaMinecart[]>>();
+	private static ConcurrentHashMap<String,ConcurrentHashMap<Long,Integer>> chunkTickets = new ConcurrentHashMap<String,ConcurrentHashMap<Long,Integer>>();
+	private static ConcurrentHashMap<String,ConcurrentHashMap<Long,MinecartManiaSign[]>> signs = new ConcurrentHashMap<String,ConcurrentHashMap<Long,MinecartManiaSign[]>>();
+	private static ConcurrentHashMap<String,RailGraph> railGraphs = new ConcurrentHashMap<String,RailGraph>();
+	private static ConcurrentHashMap<String,RailRouter> railRouters = new ConcurrentHashMap<String,RailRouter>();
+	private static ConcurrentHashMap<String,LongHashMap<LongHashMap<MinecartManiaChest>>> chests = new ConcurrentHashMap<String,LongHashMap<LongHashMap<MinecartManiaChest>>>();
+	private static ConcurrentHashMap<String,LongHashMap<LongHashMap<MinecartManiaDispenser>>> dispensers = new ConcurrentHashMap<String,LongHashMap<LongHashMap<MinecartManiaDispenser>>>();
+	private static ConcurrentHashMap<String,LongHashMap<LongHashMap<MinecartManiaFurnace>>> furnaces = new ConcurrentHashMap<String,LongHashMap<LongHashMap<MinecartManiaFurnace>>>();
 	private static ConcurrentHashMap<String,MinecartManiaPlayer> players = new ConcurrentHashMap<String,MinecartManiaPlayer>();
 	private static ConcurrentHashMap<String, Object> configuration = new ConcurrentHashMap<String,Object>();
+	private static volatile CoreConfiguration coreConfiguration = new CoreConfiguration(configuration);
 	
 	/**
 	 ** Returns a new MinecartManiaMinecart from storage if it already exists, or creates and stores a new MinecartManiaMinecart object, and returns it
 	 ** @param the minecart to wrap
 	 **/
 	 public static MinecartManiaMinecart getMinecartManiaMinecart(Minecart minecart) {
-        MinecartManiaMinecart testMinecart = minecarts.get(new Integer(minecart.getEntityId()));
+        MinecartManiaMinecart testMinecart = minecarts.get(minecart.getEntityId());
         if (testMinecart == null) {
         	
         	//Special handling to create storage and powered minecart correctly until Bukkit fixes their bug
@@ -63,7 +77,7 @@ public class MinecartManiaWorld {
         	else {
         		newCart = new MinecartManiaMinecart(minecart);
         	}
-        	minecarts.put(new Integer(minecart.getEntityId()), newCart);
+        	minecarts.put(minecart.getEntityId(), newCart);
         	return newCart;
         } else {
            return testMinecart;
@@ -75,195 +89,839 @@ public class MinecartManiaWorld {
 	 ** @param the id of the minecart to delete
 	 **/
 	 public static boolean delMinecartManiaMinecart(int entityID) {
-        if (minecarts.containsKey(new Integer(entityID))) {
-            minecarts.remove(new Integer(entityID));
-            return true;
+        MinecartManiaMinecart minecart = minecarts.remove(entityID);
+        if (minecart != null) {
+        	removeMinecartManiaMinecartPosition(minecart);
+        	releaseChunkTickets(minecart);
+        	return true;
         }
         return false;
     }
 	 
+	 /**
+	 ** Updates the block position the given minecart is indexed at, so it can be found by getMinecartManiaMinecartAt.
+	 ** Only needs to be called when the minecart has changed block or world.
+	 ** @param the minecart to update
+	 **/
+	 public static void updateMinecartManiaMinecartPosition(MinecartManiaMinecart minecart) {
+		 String world = minecart.getWorld().getName();
+		 long position = MathUtils.packBlockPosition(minecart.getX(), minecart.getY(), minecart.getZ());
+		 if (world.equals(minecart.indexedWorld) && position == minecart.indexedPosition) {
+			 return;
+		 }
+		 removeMinecartManiaMinecartPosition(minecart);
+		 
+		 ConcurrentHashMap<Long, MinecartManiaMinecart[]> cells = minecartPositions.get(world);
+		 if (cells == null) {
+			 cells = new ConcurrentHashMap<Long, MinecartManiaMinecart[]>();
+			 ConcurrentHashMap<Long, MinecartManiaMinecart[]> previous = minecartPositions.putIfAbsent(world, cells);
+			 if (previous != null) {
+				 cells = previous;
+			 }
+		 }
+		 Long key = new Long(position);
+		 //Cells are replaced, never changed, so retry until the cell has not been replaced by another thread in the meantime
+		 while (true) {
+			 MinecartManiaMinecart[] cell = cells.get(key);
+			 if (cell == null) {
+				 if (cells.putIfAbsent(key, new MinecartManiaMinecart[] { minecart }) == null) {
+					 break;
+				 }
+			 }
+			 else {
+				 MinecartManiaMinecart[] copy = new MinecartManiaMinecart[cell.length + 1];
+				 System.arraycopy(cell, 0, copy, 0, cell.length);
+				 copy[cell.length] = minecart;
+				 if (cells.replace(key, cell, copy)) {
+					 break;
+				 }
+			 }
+		 }
+		 minecart.indexedWorld = world;
+		 minecart.indexedPosition = position;
+	 }
+	 
+	 /**
+	 ** Removes the given minecart from the minecart position index
+	 ** @param the minecart to remove
+	 **/
+	 public static void removeMinecartManiaMinecartPosition(MinecartManiaMinecart minecart) {
+		 if (minecart.indexedWorld == null) {
+			 return;
+		 }
+		 ConcurrentHashMap<Long, MinecartManiaMinecart[]> cells = minecartPositions.get(minecart.indexedWorld);
+		 minecart.indexedWorld = null;
+		 if (cells == null) {
+			 return;
+		 }
+		 Long key = new Long(minecart.indexedPosition);
+		 //Retry until the cell has not been replaced by another thread in the meantime
+		 while (true) {
+			 MinecartManiaMinecart[] cell = cells.get(key);
+			 if (cell == null) {
+				 return;
+			 }
+			 int index = -1;
+			 for (int i = 0; i < cell.length; i++) {
+				 if (cell[i] == minecart) {
+					 index = i;
+					 break;
+				 }
+			 }
+			 if (index == -1) {
+				 return;
+			 }
+			 if (cell.length == 1) {
+				 if (cells.remove(key, cell)) {
+					 return;
+				 }
+			 }
+			 else {
+				 MinecartManiaMinecart[] copy = new MinecartManiaMinecart[cell.length - 1];
+				 System.arraycopy(cell, 0, copy, 0, index);
+				 System.arraycopy(cell, index + 1, copy, index, cell.length - index - 1);
+				 if (cells.replace(key, cell, copy)) {
+					 return;
+				 }
+			 }
+		 }
+	 }
+	 
+	 /**
+	 ** Keeps the chunks around the given minecart loaded, if minecarts are kept loaded.
+	 ** Only changes anything when the minecart has moved into a different chunk or world.
+	 ** @param the minecart to update
+	 **/
+	 public static void updateChunkTickets(MinecartManiaMinecart minecart) {
+		 if (!isKeepMinecartsLoaded()) {
+			 releaseChunkTickets(minecart);
+			 return;
+		 }
+		 World w = minecart.getWorld();
+		 String world = w.getName();
+		 int chunkX = minecart.getX() >> 4;
+		 int chunkZ = minecart.getZ() >> 4;
+		 long chunk = MathUtils.packChunkPosition(chunkX, chunkZ);
+		 if (world.equals(minecart.ticketWorld) && chunk == minecart.ticketChunk) {
+			 return;
+		 }
+		 //Take the new tickets before releasing the old ones, so shared chunks never drop to zero
+		 ConcurrentHashMap<Long, Integer> tickets = chunkTickets.get(world);
+		 if (tickets == null) {
+			 tickets = new ConcurrentHashMap<Long, Integer>();
+			 chunkTickets.put(world, tickets);
+		 }
+		 for (int dx = -1; dx <= 1; dx++) {
+			 for (int dz = -1; dz <= 1; dz++) {
+				 Long key = new Long(MathUtils.packChunkPosition(chunkX + dx, chunkZ + dz));
+				 Integer count = tickets.get(key);
+				 tickets.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+				 if (!w.isChunkLoaded(chunkX + dx, chunkZ + dz)) {
+					 w.loadChunk(chunkX + dx, chunkZ + dz);
+				 }
+			 }
+		 }
+		 releaseChunkTickets(minecart);
+		 minecart.ticketWorld = world;
+		 minecart.ticketChunk = chunk;
+	 }
+	 
+	 /**
+	 ** Releases the chunks held loaded by the given minecart
+	 ** @param the minecart to release the chunks of
+	 **/
+	 public static void releaseChunkTickets(MinecartManiaMinecart minecart) {
+		 if (minecart.ticketWorld == null) {
+			 return;
+		 }
+		 ConcurrentHashMap<Long, Integer> tickets = chunkTickets.get(minecart.ticketWorld);
+		 minecart.ticketWorld = null;
+		 if (tickets == null) {
+			 return;
+		 }
+		 int chunkX = MathUtils.unpackChunkX(minecart.ticketChunk);
+		 int chunkZ = MathUtils.unpackChunkZ(minecart.ticketChunk);
+		 for (int dx = -1; dx <= 1; dx++) {
+			 for (int dz = -1; dz <= 1; dz++) {
+				 Long key = new Long(MathUtils.packChunkPosition(chunkX + dx, chunkZ + dz));
+				 Integer count = tickets.get(key);
+				 if (count == null) {
+					 continue;
+				 }
+				 if (count.intValue() <= 1) {
+					 tickets.remove(key);
+				 }
+				 else {
+					 tickets.put(key, new Integer(count.intValue() - 1));
+				 }
+			 }
+		 }
+	 }
+	 
+	 /**
+	 ** Keeps the chunk tickets up to date with the world, run once per second as a safety net.
+	 ** Tickets are normally released when a minecart is deleted, and unloads of ticketed chunks are cancelled by the world listener.
+	 ** This releases the tickets of minecarts that died without being deleted, and loads again ticketed chunks that were unloaded anyway,
+	 ** by the server or another plugin.
+	 **/
+	 public static void sweepChunkTickets() {
+		 if (chunkTickets.isEmpty()) {
+			 return;
+		 }
+		 for (MinecartManiaMinecart minecart : minecarts.values()) {
+			 if (minecart.ticketWorld != null && isDead(minecart.minecart)) {
+				 releaseChunkTickets(minecart);
+			 }
+		 }
+		 if (!isKeepMinecartsLoaded()) {
+			 return;
+		 }
+		 for (World w : MinecartManiaCore.server.getWorlds()) {
+			 ConcurrentHashMap<Long, Integer> tickets = chunkTickets.get(w.getName());
+			 if (tickets == null) {
+				 continue;
+			 }
+			 for (Long key : tickets.keySet()) {
+				 int chunkX = MathUtils.unpackChunkX(key.longValue());
+				 int chunkZ = MathUtils.unpackChunkZ(key.longValue());
+				 if (!w.isChunkLoaded(chunkX, chunkZ)) {
+					 w.loadChunk(chunkX, chunkZ);
+				 }
+			 }
+		 }
+	 }
+	 
+	 /**
+	 ** Returns true if a minecart is keeping the chunk at the given chunk coordinates loaded
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	 public static boolean isChunkRetained(World w, int chunkX, int chunkZ) {
+		 ConcurrentHashMap<Long, Integer> tickets = chunkTickets.get(w.getName());
+		 return tickets != null && tickets.containsKey(new Long(MathUtils.packChunkPosition(chunkX, chunkZ)));
+	 }
+	 
 	 /**
 	 ** Returns any minecart at the given location, or null if none is present
+	 ** @param the world to check
 	 ** @param the x - coordinate to check
 	 ** @param the y - coordinate to check
 	 ** @param the z - coordinate to check
 	 **/
+	 public static MinecartManiaMinecart getMinecartManiaMinecartAt(World w, int x, int y, int z) {
+		 return getMinecartManiaMinecartAt(minecartPositions.get(w.getName()), x, y, z);
+	 }
+	 
+	 /**
+	 ** Returns any minecart at the given location in any world, or null if none is present
+	 ** @param the x - coordinate to check
+	 ** @param the y - coordinate to check
+	 ** @param the z - coordinate to check
+	 ** @deprecated ignores the world, use getMinecartManiaMinecartAt(World, int, int, int)
+	 **/
 	 public static MinecartManiaMinecart getMinecartManiaMinecartAt(int x, int y, int z) {
-		 Iterator<Entry<Integer, MinecartManiaMinecart>> i = minecarts.entrySet().iterator();
-		 while (i.hasNext()) {
-			 Entry<Integer, MinecartManiaMinecart> e = i.next();
-			 if (e.getValue().minecart.getLocation().getBlockX() == x) {
-				 if (e.getValue().minecart.getLocation().getBlockY() == y) {
-					 if (e.getValue().minecart.getLocation().getBlockZ() == z) {
-						 return e.getValue();
-					 }
+		 for (ConcurrentHashMap<Long, MinecartManiaMinecart[]> cells : minecartPositions.values()) {
+			 MinecartManiaMinecart minecart = getMinecartManiaMinecartAt(cells, x, y, z);
+			 if (minecart != null) {
+				 return minecart;
+			 }
+		 }
+		 return null;
+	 }
+	 
+	 private static MinecartManiaMinecart getMinecartManiaMinecartAt(ConcurrentHashMap<Long, MinecartManiaMinecart[]> cells, int x, int y, int z) {
+		 if (cells == null) {
+			 return null;
+		 }
+		 MinecartManiaMinecart[] cell = cells.get(MathUtils.packBlockPosition(x, y, z));
+		 if (cell != null) {
+			 for (int i = 0; i < cell.length; i++) {
+				 if (!isDead(cell[i].minecart)) {
+					 return cell[i];
 				 }
 			 }
 		 }
-		
 		 return null;
 	 }
 	 
 	 /**
-	  * Returns an arraylist of all the MinecartManiaMinecarts stored by this class
+	  * Returns a new arraylist of all the MinecartManiaMinecarts stored by this class. Use getMinecartManiaMinecarts() to avoid the copy.
 	  * @return arraylist of all MinecartManiaMinecarts
 	  */
 	 public static ArrayList<MinecartManiaMinecart> getMinecartManiaMinecartList() {
-		 Iterator<Entry<Integer, MinecartManiaMinecart>> i = minecarts.entrySet().iterator();
-		 ArrayList<MinecartManiaMinecart> minecartList = new ArrayList<MinecartManiaMinecart>(minecarts.size());
-		 while (i.hasNext()) {
-			 minecartList.add(i.next().getValue());
+		 return new ArrayList<MinecartManiaMinecart>(minecarts.values());
+	 }
+	 
+	 /**
+	 ** Returns a read only list of all the minecarts. The list is shared until a minecart is added or removed, so it is not copied on each call.
+	 **/
+	 public static List<MinecartManiaMinecart> getMinecartManiaMinecarts() {
+		 return minecarts.values();
+	 }
+	 
+	 /**
+	 ** Returns the rail network of the given world
+	 ** @param the world
+	 **/
+	 public static RailGraph getRailGraph(World w) {
+		 RailGraph graph = railGraphs.get(w.getName());
+		 if (graph == null) {
+			 graph = new RailGraph(w);
+			 RailGraph previous = railGraphs.putIfAbsent(w.getName(), graph);
+			 if (previous != null) {
+				 graph = previous;
+			 }
 		 }
-		 return minecartList;
+		 return graph;
 	 }
 	 
 	 /**
-	 ** Returns a new MinecartManiaChest from storage if it already exists, or creates and stores a new MinecartManiaChest object, and returns it
+	 ** Drops the part of the rail network in the given chunk, after the chunk unloads
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	 public static void unloadRails(World w, int chunkX, int chunkZ) {
+		 RailGraph graph = railGraphs.get(w.getName());
+		 if (graph != null) {
+			 graph.unloadChunk(chunkX, chunkZ);
+		 }
+	 }
+	 
+	 /**
+	 ** Returns the router for named destinations in the given world
+	 ** @param the world
+	 **/
+	 public static RailRouter getRailRouter(World w) {
+		 RailRouter router = railRouters.get(w.getName());
+		 if (router == null) {
+			 router = new RailRouter(getRailGraph(w));
+			 RailRouter previous = railRouters.putIfAbsent(w.getName(), router);
+			 if (previous != null) {
+				 router = previous;
+			 }
+			 else {
+				 router.getGraph().addChangeListener(router);
+			 }
+		 }
+		 return router;
+	 }
+	 
+	 /**
+	 ** Returns the cached sign at the given location, or null if there is no sign there
+	 ** @param the world to check
+	 ** @param the x - coordinate to check
+	 ** @param the y - coordinate to check
+	 ** @param the z - coordinate to check
+	 **/
+	 public static MinecartManiaSign getMinecartManiaSignAt(World w, int x, int y, int z) {
+		 ArrayList<MinecartManiaSign> list = getMinecartManiaSignList(w, x, y, z, x, y, z);
+		 return list.isEmpty() ? null : list.get(0);
+	 }
+	 
+	 /**
+	 ** Returns the cached signs inside the given box, ordered by x, then y, then z.
+	 ** Chunks are indexed over a few ticks after they load, see SignIndexer. A chunk searched before then is indexed right away.
+	 ** @param the world to search
+	 ** @param the lowest x - coordinate of the box
+	 ** @param the lowest y - coordinate of the box
+	 ** @param the lowest z - coordinate of the box
+	 ** @param the highest x - coordinate of the box
+	 ** @param the highest y - coordinate of the box
+	 ** @param the highest z - coordinate of the box
+	 **/
+	 public static ArrayList<MinecartManiaSign> getMinecartManiaSignList(World w, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+		 ArrayList<MinecartManiaSign> list = new ArrayList<MinecartManiaSign>();
+		 for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+			 for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+				 MinecartManiaSign[] chunk = getSignChunk(w, chunkX, chunkZ);
+				 if (chunk == null) {
+					 continue;
+				 }
+				 for (MinecartManiaSign sign : chunk) {
+					 if (sign.getX() < minX || sign.getX() > maxX || sign.getY() < minY || sign.getY() > maxY || sign.getZ() < minZ || sign.getZ() > maxZ) {
+						 continue;
+					 }
+					 //Signs can be removed without an event (e.g. when the block they are attached to breaks)
+					 if (!sign.isValid()) {
+						 removeMinecartManiaSign(w, sign.getX(), sign.getY(), sign.getZ());
+						 continue;
+					 }
+					 int index = list.size();
+					 while (index > 0 && compareSignPosition(list.get(index - 1), sign) > 0) {
+						 index--;
+					 }
+					 list.add(index, sign);
+				 }
+			 }
+		 }
+		 return list;
+	 }
+	 
+	 private static int compareSignPosition(MinecartManiaSign a, MinecartManiaSign b) {
+		 if (a.getX() != b.getX()) {
+			 return a.getX() < b.getX() ? -1 : 1;
+		 }
+		 if (a.getY() != b.getY()) {
+			 return a.getY() < b.getY() ? -1 : 1;
+		 }
+		 if (a.getZ() != b.getZ()) {
+			 return a.getZ() < b.getZ() ? -1 : 1;
+		 }
+		 return 0;
+	 }
+	 
+	 private static MinecartManiaSign[] getSignChunk(World w, int chunkX, int chunkZ) {
+		 ConcurrentHashMap<Long, MinecartManiaSign[]> chunks = getSignChunks(w);
+		 Long key = new Long(MathUtils.packChunkPosition(chunkX, chunkZ));
+		 MinecartManiaSign[] chunk = chunks.get(key);
+		 if (chunk == null) {
+			 if (!w.isChunkLoaded(chunkX, chunkZ)) {
+				 return null;
+			 }
+			 chunk = SignIndexer.finish(w, chunkX, chunkZ);
+			 MinecartManiaSign[] previous = chunks.putIfAbsent(key, chunk);
+			 if (previous != null) {
+				 chunk = previous;
+			 }
+		 }
+		 return chunk;
+	 }
+	 
+	 private static ConcurrentHashMap<Long, MinecartManiaSign[]> getSignChunks(World w) {
+		 ConcurrentHashMap<Long, MinecartManiaSign[]> chunks = signs.get(w.getName());
+		 if (chunks == null) {
+			 chunks = new ConcurrentHashMap<Long, MinecartManiaSign[]>();
+			 ConcurrentHashMap<Long, MinecartManiaSign[]> previous = signs.putIfAbsent(w.getName(), chunks);
+			 if (previous != null) {
+				 chunks = previous;
+			 }
+		 }
+		 return chunks;
+	 }
+	 
+	 /**
+	 ** Stores the signs found in a chunk by the SignIndexer, unless the chunk has been indexed since
+	 **/
+	 static void putSignChunk(World w, int chunkX, int chunkZ, MinecartManiaSign[] chunk) {
+		 getSignChunks(w).putIfAbsent(new Long(MathUtils.packChunkPosition(chunkX, chunkZ)), chunk);
+	 }
+	 
+	 /**
+	 ** Returns true if the signs in the given chunk are already indexed
+	 **/
+	 static boolean isSignChunkIndexed(World w, int chunkX, int chunkZ) {
+		 ConcurrentHashMap<Long, MinecartManiaSign[]> chunks = signs.get(w.getName());
+		 return chunks != null && chunks.containsKey(new Long(MathUtils.packChunkPosition(chunkX, chunkZ)));
+	 }
+	 
+	 /**
+	 ** Queues the signs in the given chunk to be indexed, after the chunk has loaded. The chunk is read over the next few ticks.
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	 public static void loadMinecartManiaSigns(World w, int chunkX, int chunkZ) {
+		 SignIndexer.queue(w, chunkX, chunkZ);
+	 }
+	 
+	 /**
+	 ** Updates the cached text of the sign at the given location, adding it to the cache if needed
+	 ** @param the world the sign is in
+	 ** @param the x - coordinate of the sign
+	 ** @param the y - coordinate of the sign
+	 ** @param the z - coordinate of the sign
+	 ** @param the new text of the sign
+	 **/
+	 public static void updateMinecartManiaSign(World w, int x, int y, int z, String[] lines) {
+		 if (SignIndexer.update(w, x, y, z, lines)) {
+			 return;
+		 }
+		 ConcurrentHashMap<Long, MinecartManiaSign[]> chunks = signs.get(w.getName());
+		 if (chunks == null) {
+			 return;
+		 }
+		 Long key = new Long(MathUtils.packChunkPosition(x >> 4, z >> 4));
+		 MinecartManiaSign[] chunk = chunks.get(key);
+		 //Chunks that have not been indexed yet will read the sign when they are
+		 if (chunk == null) {
+			 return;
+		 }
+		 for (MinecartManiaSign sign : chunk) {
+			 if (sign.getX() == x && sign.getY() == y && sign.getZ() == z) {
+				 sign.setLines(lines);
+				 return;
+			 }
+		 }
+		 MinecartManiaSign[] copy = new MinecartManiaSign[chunk.length + 1];
+		 System.arraycopy(chunk, 0, copy, 0, chunk.length);
+		 copy[chunk.length] = new MinecartManiaSign(w, x, y, z, lines);
+		 chunks.put(key, copy);
+	 }
+	 
+	 /**
+	 ** Removes the sign at the given location from the cache
+	 ** @param the world the sign was in
+	 ** @param the x - coordinate of the sign
+	 ** @param the y - coordinate of the sign
+	 ** @param the z - coordinate of the sign
+	 **/
+	 public static void removeMinecartManiaSign(World w, int x, int y, int z) {
+		 if (SignIndexer.remove(w, x, y, z)) {
+			 return;
+		 }
+		 ConcurrentHashMap<Long, MinecartManiaSign[]> chunks = signs.get(w.getName());
+		 if (chunks == null) {
+			 return;
+		 }
+		 Long key = new Long(MathUtils.packChunkPosition(x >> 4, z >> 4));
+		 MinecartManiaSign[] chunk = chunks.get(key);
+		 if (chunk == null) {
+			 return;
+		 }
+		 for (int i = 0; i < chunk.length; i++) {
+			 if (chunk[i].getX() == x && chunk[i].getY() == y && chunk[i].getZ() == z) {
+				 MinecartManiaSign[] copy = new MinecartManiaSign[chunk.length - 1];
+				 System.arraycopy(chunk, 0, copy, 0, i);
+				 System.arraycopy(chunk, i + 1, copy, i, chunk.length - i - 1);
+				 chunks.put(key, copy);
+				 return;
+			 }
+		 }
+	 }
+	 
+	 /**
+	 ** Drops the cached signs for the given chunk. They will be read again when the chunk next loads.
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	 public static void unloadMinecartManiaSigns(World w, int chunkX, int chunkZ) {
+		 SignIndexer.unload(w, chunkX, chunkZ);
+		 ConcurrentHashMap<Long, MinecartManiaSign[]> chunks = signs.get(w.getName());
+		 if (chunks != null) {
+			 chunks.remove(new Long(MathUtils.packChunkPosition(chunkX, chunkZ)));
+		 }
+	 }
+	 
+	 /**
+	 ** Returns a new MinecartManiaChest from storage if it already exists, or creates and stores a new MinecartManiaChest object, and returns it.
+	 ** Stored chests are removed when the block is broken or the chunk unloads.
 	 ** @param the chest to wrap
 	 **/
 	 public static MinecartManiaChest getMinecartManiaChest(Chest chest) {
-        MinecartManiaChest testChest = chests.get(new Location(chest.getWorld(), chest.getX(), chest.getY(), chest.getZ()));
+        LongHashMap<MinecartManiaChest> map = getBlockMap(chests, chest.getWorld(), chest.getX(), chest.getZ());
+        long key = MathUtils.packBlockPosition(chest.getX(), chest.getY(), chest.getZ());
+        MinecartManiaChest testChest = map.get(key);
         if (testChest == null) {
-	        MinecartManiaChest newChest = new MinecartManiaChest(chest);
-	        chests.put(new Location(chest.getWorld(), chest.getX(), chest.getY(), chest.getZ()), newChest);
-	        return newChest;
-        } 
-        else {
-        	//Verify that this block is still a chest (could have been changed)
-        	if (MinecartManiaWorld.getBlockIdAt(testChest.getWorld(), testChest.getX(), testChest.getY(), testChest.getZ()) == Item.CHEST.getId()) {
-        		testChest.updateInventory(testChest.getInventory());
-        		return testChest;
-        	}
-        	else {
-        		chests.remove(new Location(chest.getWorld(), chest.getX(), chest.getY(), chest.getZ()));
-        		return null;
+        	testChest = new MinecartManiaChest(chest);
+        	MinecartManiaChest previous = map.putIfAbsent(key, testChest);
+        	if (previous != null) {
+        		testChest = previous;
         	}
         }
+        return testChest;
     }
 	 
+	 /**
+	 ** Returns the MinecartManiaChest at the given location, or null if there is no chest there.
+	 ** The block id is checked on each call, so a stored chest whose block was removed without a break event, such as by an explosion
+	 ** or another plugin, is removed instead of returned.
+	 ** @param the world to check
+	 ** @param the x - coordinate to check
+	 ** @param the y - coordinate to check
+	 ** @param the z - coordinate to check
+	 **/
+	 public static MinecartManiaChest getMinecartManiaChest(World w, int x, int y, int z) {
+		 if (getBlockIdAt(w, x, y, z) != Item.CHEST.getId()) {
+			 removeContainer(chests, w, x, y, z);
+			 return null;
+		 }
+		 MinecartManiaChest chest = getContainer(chests, w, x, y, z);
+		 if (chest != null) {
+			 return chest;
+		 }
+		 return getMinecartManiaChest((Chest)getBlockAt(w, x, y, z).getState());
+	 }
+	 
 	/**
 	 ** Returns true if the chest with the given location was deleted, false if not.
-	 ** @param the  location of the chest to delete
+	 ** @param the location of the chest to delete
 	 **/
 	 public static boolean delMinecartManiaChest(Location v) {
-        if (chests.containsKey(v)) {
-            chests.remove(v);
-            return true;
-        }
-        return false;
+        return delMinecartManiaChest(v.getWorld(), v.getBlockX(), v.getBlockY(), v.getBlockZ());
     }
+	 
+	/**
+	 ** Returns true if the chest at the given location was deleted, false if not.
+	 ** @param the world of the chest to delete
+	 ** @param the x - coordinate of the chest to delete
+	 ** @param the y - coordinate of the chest to delete
+	 ** @param the z - coordinate of the chest to delete
+	 **/
+	 public static boolean delMinecartManiaChest(World w, int x, int y, int z) {
+		 return removeContainer(chests, w, x, y, z);
+	 }
 	
 	/**
 	* Returns an arraylist of all the MinecartManiaChests stored by this class
-	* @return arraylist of all MinecartManiaChest
+	* @return arraylist of all MinecartManiaChests
 	*/
 	public static ArrayList<MinecartManiaChest> getMinecartManiaChestList() {
-		Iterator<Entry<Location, MinecartManiaChest>> i = chests.entrySet().iterator();
-		ArrayList<MinecartManiaChest> chestList = new ArrayList<MinecartManiaChest>(chests.size());
-		while (i.hasNext()) {
-			chestList.add(i.next().getValue());
+		ArrayList<MinecartManiaChest> chestList = new ArrayList<MinecartManiaChest>();
+		for (LongHashMap<LongHashMap<MinecartManiaChest>> world : chests.values()) {
+			for (LongHashMap<MinecartManiaChest> map : world.values()) {
+				chestList.addAll(map.values());
+			}
 		}
 		return chestList;
 	 }
 	 
 	 /**
-	 ** Returns a new MinecartManiaDispenser from storage if it already exists, or creates and stores a new MinecartManiaDispenser object, and returns it
+	 ** Returns a new MinecartManiaDispenser from storage if it already exists, or creates and stores a new MinecartManiaDispenser object, and returns it.
+	 ** Stored dispensers are removed when the block is broken or the chunk unloads.
 	 ** @param the dispenser to wrap
 	 **/
 	 public static MinecartManiaDispenser getMinecartManiaDispenser(Dispenser dispenser) {
-        MinecartManiaDispenser testDispenser = dispensers.get(new Location(dispenser.getWorld(), dispenser.getX(), dispenser.getY(), dispenser.getZ()));
+        LongHashMap<MinecartManiaDispenser> map = getBlockMap(dispensers, dispenser.getWorld(), dispenser.getX(), dispenser.getZ());
+        long key = MathUtils.packBlockPosition(dispenser.getX(), dispenser.getY(), dispenser.getZ());
+        MinecartManiaDispenser testDispenser = map.get(key);
         if (testDispenser == null) {
-        	MinecartManiaDispenser newDispenser = new MinecartManiaDispenser(dispenser);
-        	dispensers.put(new Location(dispenser.getWorld(), dispenser.getX(), dispenser.getY(), dispenser.getZ()), newDispenser);
-	        return newDispenser;
-        } 
-        else {
-        	//Verify that this block is still a dispenser (could have been changed)
-        	if (MinecartManiaWorld.getBlockIdAt(testDispenser.getWorld(), testDispenser.getX(), testDispenser.getY(), testDispenser.getZ()) == Item.DISPENSER.getId()) {
-        		testDispenser.updateInventory(testDispenser.getInventory());
-        		return testDispenser;
-        	}
-        	else {
-        		dispensers.remove(new Location(dispenser.getWorld(), dispenser.getX(), dispenser.getY(), dispenser.getZ()));
-        		return null;
+        	testDispenser = new MinecartManiaDispenser(dispenser);
+        	MinecartManiaDispenser previous = map.putIfAbsent(key, testDispenser);
+        	if (previous != null) {
+        		testDispenser = previous;
         	}
         }
+        return testDispenser;
     }
 	 
+	 /**
+	 ** Returns the MinecartManiaDispenser at the given location, or null if there is no dispenser there.
+	 ** The block id is checked on each call, so a stored dispenser whose block was removed without a break event, such as by an explosion
+	 ** or another plugin, is removed instead of returned.
+	 ** @param the world to check
+	 ** @param the x - coordinate to check
+	 ** @param the y - coordinate to check
+	 ** @param the z - coordinate to check
+	 **/
+	 public static MinecartManiaDispenser getMinecartManiaDispenser(World w, int x, int y, int z) {
+		 if (getBlockIdAt(w, x, y, z) != Item.DISPENSER.getId()) {
+			 removeContainer(dispensers, w, x, y, z);
+			 return null;
+		 }
+		 MinecartManiaDispenser dispenser = getContainer(dispensers, w, x, y, z);
+		 if (dispenser != null) {
+			 return dispenser;
+		 }
+		 return getMinecartManiaDispenser((Dispenser)getBlockAt(w, x, y, z).getState());
+	 }
+	 
 	/**
 	 ** Returns true if the dispenser with the given location was deleted, false if not.
 	 ** @param the location of the dispenser to delete
 	 **/
 	 public static boolean delMinecartManiaDispenser(Location v) {
-        if (dispensers.containsKey(v)) {
-        	dispensers.remove(v);
-            return true;
-        }
-        return false;
+        return delMinecartManiaDispenser(v.getWorld(), v.getBlockX(), v.getBlockY(), v.getBlockZ());
     }
 	 
+	/**
+	 ** Returns true if the dispenser at the given location was deleted, false if not.
+	 ** @param the world of the dispenser to delete
+	 ** @param the x - coordinate of the dispenser to delete
+	 ** @param the y - coordinate of the dispenser to delete
+	 ** @param the z - coordinate of the dispenser to delete
+	 **/
+	 public static boolean delMinecartManiaDispenser(World w, int x, int y, int z) {
+		 return removeContainer(dispensers, w, x, y, z);
+	 }
+	
 	/**
 	* Returns an arraylist of all the MinecartManiaDispensers stored by this class
 	* @return arraylist of all MinecartManiaDispensers
 	*/
 	public static ArrayList<MinecartManiaDispenser> getMinecartManiaDispenserList() {
-		Iterator<Entry<Location, MinecartManiaDispenser>> i = dispensers.entrySet().iterator();
-		ArrayList<MinecartManiaDispenser> dispenserList = new ArrayList<MinecartManiaDispenser>(dispensers.size());
-		while (i.hasNext()) {
-			dispenserList.add(i.next().getValue());
+		ArrayList<MinecartManiaDispenser> dispenserList = new ArrayList<MinecartManiaDispenser>();
+		for (LongHashMap<LongHashMap<MinecartManiaDispenser>> world : dispensers.values()) {
+			for (LongHashMap<MinecartManiaDispenser> map : world.values()) {
+				dispenserList.addAll(map.values());
+			}
 		}
 		return dispenserList;
 	 }
 	 
 	 /**
-	 ** Returns a new MinecartManiaFurnace from storage if it already exists, or creates and stores a new MinecartManiaFurnace object, and returns it
+	 ** Returns a new MinecartManiaFurnace from storage if it already exists, or creates and stores a new MinecartManiaFurnace object, and returns it.
+	 ** Stored furnaces are removed when the block is broken or the chunk unloads.
 	 ** @param the furnace to wrap
 	 **/
 	 public static MinecartManiaFurnace getMinecartManiaFurnace(Furnace furnace) {
-		 MinecartManiaFurnace testFurnace = furnaces.get(new Location(furnace.getWorld(), furnace.getX(), furnace.getY(), furnace.getZ()));
+        LongHashMap<MinecartManiaFurnace> map = getBlockMap(furnaces, furnace.getWorld(), furnace.getX(), furnace.getZ());
+        long key = MathUtils.packBlockPosition(furnace.getX(), furnace.getY(), furnace.getZ());
+        MinecartManiaFurnace testFurnace = map.get(key);
         if (testFurnace == null) {
-        	MinecartManiaFurnace newFurnace = new MinecartManiaFurnace(furnace);
-        	furnaces.put(new Location(furnace.getWorld(), furnace.getX(), furnace.getY(), furnace.getZ()), newFurnace);
-	        return newFurnace;
-        } 
-        else {
-        	//Verify that this block is still a furnace (could have been changed)
-        	if (MinecartManiaWorld.getBlockIdAt(testFurnace.getWorld(), testFurnace.getX(), testFurnace.getY(), testFurnace.getZ()) == Item.FURNACE.getId()
-        			|| MinecartManiaWorld.getBlockIdAt(testFurnace.getWorld(), testFurnace.getX(), testFurnace.getY(), testFurnace.getZ()) == Item.BURNING_FURNACE.getId()) {
-        		testFurnace.updateInventory(testFurnace.getInventory());
-        		return testFurnace;
-        	}
-        	else {
-        		furnaces.remove(new Location(furnace.getWorld(), furnace.getX(), furnace.getY(), furnace.getZ()));
-        		return null;
+        	testFurnace = new MinecartManiaFurnace(furnace);
+        	MinecartManiaFurnace previous = map.putIfAbsent(key, testFurnace);
+        	if (previous != null) {
+        		testFurnace = previous;
         	}
         }
+        return testFurnace;
     }
 	 
+	 /**
+	 ** Returns the MinecartManiaFurnace at the given location, or null if there is no furnace there.
+	 ** The block id is checked on each call, so a stored furnace whose block was removed without a break event, such as by an explosion
+	 ** or another plugin, is removed instead of returned.
+	 ** @param the world to check
+	 ** @param the x - coordinate to check
+	 ** @param the y - coordinate to check
+	 ** @param the z - coordinate to check
+	 **/
+	 public static MinecartManiaFurnace getMinecartManiaFurnace(World w, int x, int y, int z) {
+		 int id = getBlockIdAt(w, x, y, z);
+		 if (id != Item.FURNACE.getId() && id != Item.BURNING_FURNACE.getId()) {
+			 removeContainer(furnaces, w, x, y, z);
+			 return null;
+		 }
+		 MinecartManiaFurnace furnace = getContainer(furnaces, w, x, y, z);
+		 if (furnace != null) {
+			 return furnace;
+		 }
+		 return getMinecartManiaFurnace((Furnace)getBlockAt(w, x, y, z).getState());
+	 }
+	 
 	/**
-	 ** Returns true if the furnaces with the given location was deleted, false if not.
-	 ** @param the location of the furnaces to delete
+	 ** Returns true if the furnace with the given location was deleted, false if not.
+	 ** @param the location of the furnace to delete
 	 **/
 	 public static boolean delMinecartManiaFurnace(Location v) {
-        if (furnaces.containsKey(v)) {
-        	furnaces.remove(v);
-            return true;
-        }
-        return false;
+        return delMinecartManiaFurnace(v.getWorld(), v.getBlockX(), v.getBlockY(), v.getBlockZ());
     }
 	 
+	/**
+	 ** Returns true if the furnace at the given location was deleted, false if not.
+	 ** @param the world of the furnace to delete
+	 ** @param the x - coordinate of the furnace to delete
+	 ** @param the y - coordinate of the furnace to delete
+	 ** @param the z - coordinate of the furnace to delete
+	 **/
+	 public static boolean delMinecartManiaFurnace(World w, int x, int y, int z) {
+		 return removeContainer(furnaces, w, x, y, z);
+	 }
+	
 	/**
 	* Returns an arraylist of all the MinecartManiaFurnaces stored by this class
 	* @return arraylist of all MinecartManiaFurnaces
 	*/
 	public static ArrayList<MinecartManiaFurnace> getMinecartManiaFurnaceList() {
-		Iterator<Entry<Location, MinecartManiaFurnace>> i = furnaces.entrySet().iterator();
-		ArrayList<MinecartManiaFurnace> furnaceList = new ArrayList<MinecartManiaFurnace>(furnaces.size());
-		while (i.hasNext()) {
-			furnaceList.add(i.next().getValue());
+		ArrayList<MinecartManiaFurnace> furnaceList = new ArrayList<MinecartManiaFurnace>();
+		for (LongHashMap<LongHashMap<MinecartManiaFurnace>> world : furnaces.values()) {
+			for (LongHashMap<MinecartManiaFurnace> map : world.values()) {
+				furnaceList.addAll(map.values());
+			}
 		}
 		return furnaceList;
 	 }
+	 
+	 /**
+	 ** Removes any chest, dispenser or furnace stored at the given location, after the block there was broken or placed.
+	 ** Chests next to the location forget their neighbor chest, since a double chest may have been made or broken.
+	 ** @param the world the block is in
+	 ** @param the x - coordinate of the block
+	 ** @param the y - coordinate of the block
+	 ** @param the z - coordinate of the block
+	 **/
+	 public static void invalidateContainer(World w, int x, int y, int z) {
+		 removeContainer(chests, w, x, y, z);
+		 removeContainer(dispensers, w, x, y, z);
+		 removeContainer(furnaces, w, x, y, z);
+		 resetNeighborChest(getContainer(chests, w, x - 1, y, z));
+		 resetNeighborChest(getContainer(chests, w, x + 1, y, z));
+		 resetNeighborChest(getContainer(chests, w, x, y, z - 1));
+		 resetNeighborChest(getContainer(chests, w, x, y, z + 1));
+	 }
+	 
+	 private static void resetNeighborChest(MinecartManiaChest chest) {
+		 if (chest != null) {
+			 chest.resetNeighborChest();
+		 }
+	 }
+	 
+	 /**
+	 ** Removes all chests, dispensers and furnaces stored in the given chunk. Their inventories are no longer valid once the chunk unloads.
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	 public static void unloadContainers(World w, int chunkX, int chunkZ) {
+		 unloadContainers(chests, w, chunkX, chunkZ);
+		 unloadContainers(dispensers, w, chunkX, chunkZ);
+		 unloadContainers(furnaces, w, chunkX, chunkZ);
+	 }
+	 
+	 private static <V extends MinecartManiaSingleContainer> void unloadContainers(ConcurrentHashMap<String,LongHashMap<LongHashMap<V>>> registry, World w, int chunkX, int chunkZ) {
+		 LongHashMap<LongHashMap<V>> world = registry.get(w.getName());
+		 if (world == null) {
+			 return;
+		 }
+		 LongHashMap<V> map = world.remove(MathUtils.packChunkPosition(chunkX, chunkZ));
+		 if (map != null) {
+			 for (V container : map.values()) {
+				 container.invalidate();
+			 }
+		 }
+	 }
+	 
+	 private static <V> V getContainer(ConcurrentHashMap<String,LongHashMap<LongHashMap<V>>> registry, World w, int x, int y, int z) {
+		 LongHashMap<LongHashMap<V>> world = registry.get(w.getName());
+		 if (world == null) {
+			 return null;
+		 }
+		 LongHashMap<V> map = world.get(MathUtils.packChunkPosition(x >> 4, z >> 4));
+		 return map == null ? null : map.get(MathUtils.packBlockPosition(x, y, z));
+	 }
+	 
+	 private static <V extends MinecartManiaSingleContainer> boolean removeContainer(ConcurrentHashMap<String,LongHashMap<LongHashMap<V>>> registry, World w, int x, int y, int z) {
+		 LongHashMap<LongHashMap<V>> world = registry.get(w.getName());
+		 if (world == null) {
+			 return false;
+		 }
+		 LongHashMap<V> map = world.get(MathUtils.packChunkPosition(x >> 4, z >> 4));
+		 V container = map == null ? null : map.remove(MathUtils.packBlockPosition(x, y, z));
+		 if (container == null) {
+			 return false;
+		 }
+		 container.invalidate();
+		 return true;
+	 }
+	 
+	 /**
+	 ** Returns the map of blocks in the chunk holding the given block from a per world, per chunk registry, creating it if needed.
+	 ** Both levels are keyed by primitive packed positions, so lookups do not allocate. Each chunk has its own map, so the
+	 ** copy made when a container is added or removed is only as large as the containers of that chunk.
+	 **/
+	 private static <V> LongHashMap<V> getBlockMap(ConcurrentHashMap<String,LongHashMap<LongHashMap<V>>> registry, World w, int x, int z) {
+		 LongHashMap<LongHashMap<V>> world = registry.get(w.getName());
+		 if (world == null) {
+			 world = new LongHashMap<LongHashMap<V>>();
+			 LongHashMap<LongHashMap<V>> previous = registry.putIfAbsent(w.getName(), world);
+			 if (previous != null) {
+				 world = previous;
+			 }
+		 }
+		 long chunk = MathUtils.packChunkPosition(x >> 4, z >> 4);
+		 LongHashMap<V> map = world.get(chunk);
+		 if (map == null) {
+			 map = new LongHashMap<V>();
+			 LongHashMap<V> previous = world.putIfAbsent(chunk, map);
+			 if (previous != null) {
+				 map = previous;
+			 }
+		 }
+		 return map;
+	 }
 	
 	/**
 	 ** Returns a new MinecartManiaPlayer from storage if it already exists, or creates and stores a new MinecartManiaPlayer object, and returns it
@@ -307,7 +965,7 @@ public class MinecartManiaWorld {
 	 }
 	 
 	/**
-	 ** Returns the value from the loaded configuration
+	 ** Returns the value from the loaded configuration. Minecart Mania Core's own settings are also available, faster, from getCoreConfiguration
 	 ** @param the string key the configuration value is associated with
 	 **/
 	 public static Object getConfigurationValue(String key) {
@@ -318,7 +976,8 @@ public class MinecartManiaWorld {
 	 }
 	 
 	/**
-	 ** Creates a new configuration value if it does not already exists, or resets an existing value
+	 ** Creates a new configuration value if it does not already exists, or resets an existing value.
+	 ** Changing one of Minecart Mania Core's own settings also replaces the typed configuration, so the change takes effect immediately.
 	 ** @param the string key the configuration value is associated with
 	 ** @param the value to store
 	 **/	 
@@ -329,6 +988,29 @@ public class MinecartManiaWorld {
 		 else {
 			 configuration.put(key, value);
 		 }
+		 if (isCoreSetting(key)) {
+			 synchronized (configuration) {
+				 setCoreConfiguration(new CoreConfiguration(configuration));
+			 }
+		 }
+	 }
+	 
+	/**
+	 ** Stores the given configuration values, without replacing the typed configuration.
+	 ** Used while reading a settings file, which publishes the typed configuration once, after every value has been read.
+	 ** @param the values to store, by key
+	 **/
+	 public static void putConfigurationValues(Map<String, Object> values) {
+		 configuration.putAll(values);
+	 }
+	 
+	 private static boolean isCoreSetting(String key) {
+		 for (Setting setting : SettingList.config) {
+			 if (setting.getName().equals(key)) {
+				 return true;
+			 }
+		 }
+		 return false;
 	 }
 	 
 	 public static ConcurrentHashMap<String, Object> getConfiguration() {
@@ -360,87 +1042,88 @@ public class MinecartManiaWorld {
 	 }
 	 
 
+	/**
+	 ** Returns the typed configuration of Minecart Mania Core. The returned object is immutable, and is replaced as a whole when the configuration is reloaded.
+	 **/
+	public static CoreConfiguration getCoreConfiguration() {
+		return coreConfiguration;
+	}
+	
+	/**
+	 ** Replaces the typed configuration of Minecart Mania Core, and rebuilds the control block table from its block ids
+	 ** @param the new configuration
+	 **/
+	public static void setCoreConfiguration(CoreConfiguration configuration) {
+		coreConfiguration = configuration;
+		ControlBlockRegistry.rebuild();
+	}
+
 	public static int getReverseBlockId() {
-		return getIntValue(getConfigurationValue("Reverse Block"));
+		return coreConfiguration.reverseBlockId;
 	}
 	
 	public static int getHighSpeedBoosterBlockId() {
-		return getIntValue(getConfigurationValue("High Speed Booster Block"));
+		return coreConfiguration.highSpeedBoosterBlockId;
 	}
 	
 	public static double getHighSpeedBoosterBlockMultiplier() {
-		return getDoubleValue(getConfigurationValue("High Speed Booster Block Multiplier"));
+		return coreConfiguration.highSpeedBoosterBlockMultiplier;
 	}
 	
 	public static int getLowSpeedBoosterBlockId() {
-		return getIntValue(getConfigurationValue("Low Speed Booster Block"));
+		return coreConfiguration.lowSpeedBoosterBlockId;
 	}
 	
 	public static double getLowSpeedBoosterBlockMultiplier() {
-		return getDoubleValue(getConfigurationValue("Low Speed Booster Block Multiplier"));
+		return coreConfiguration.lowSpeedBoosterBlockMultiplier;
 	}
 	
 	public static int getHighSpeedBrakeBlockId() {
-		return getIntValue(getConfigurationValue("High Speed Brake Block"));
+		return coreConfiguration.highSpeedBrakeBlockId;
 	}
 	
 	public static double getHighSpeedBrakeBlockDivisor() {
-		return getDoubleValue(getConfigurationValue("High Speed Brake Block Divisor"));
+		return coreConfiguration.highSpeedBrakeBlockDivisor;
 	}
 	
 	public static int getLowSpeedBrakeBlockId() {
-		return getIntValue(getConfigurationValue("Low Speed Brake Block"));
+		return coreConfiguration.lowSpeedBrakeBlockId;
 	}
 	
 	public static double getLowSpeedBrakeBlockDivisor() {
-		return getDoubleValue(getConfigurationValue("Low Speed Brake Block Divisor"));
+		return coreConfiguration.lowSpeedBrakeBlockDivisor;
 	}
 	
 	public static int getCatcherBlockId() {
-		return getIntValue(getConfigurationValue("Catcher Block"));
+		return coreConfiguration.catcherBlockId;
 	}
 	
 	public static int getEjectorBlockId() {
-		return getIntValue(getConfigurationValue("Ejector Block"));
+		return coreConfiguration.ejectorBlockId;
 	}
 	
 	public static int getMaximumMinecartSpeedPercent() {
-		return getIntValue(getConfigurationValue("Maximum Minecart Speed Percent"));
+		return coreConfiguration.maximumMinecartSpeedPercent;
 	}
 	
 	public static int getDefaultMinecartSpeedPercent() {
-		return getIntValue(getConfigurationValue("Default Minecart Speed Percent"));
+		return coreConfiguration.defaultMinecartSpeedPercent;
 	}
 	
 	public static int getMinecartsClearRailsSetting() {
-		return getIntValue(getConfigurationValue("Minecarts Clear Rails"));
+		return coreConfiguration.minecartsClearRails;
 	}
 	
 	public static boolean isKeepMinecartsLoaded() {
-		Object o = getConfigurationValue("Keep Minecarts Loaded");
-		if (o != null) {
-			Boolean value = (Boolean)o;
-			return value.booleanValue();
-		}
-		return false;
+		return coreConfiguration.keepMinecartsLoaded;
 	}
 	
 	public static boolean isMinecartsKillMobs() {
-		Object o = getConfigurationValue("Minecarts Kill Mobs");
-		if (o != null) {
-			Boolean value = (Boolean)o;
-			return value.booleanValue();
-		}
-		return true;
+		return coreConfiguration.minecartsKillMobs;
 	}
 
 	public static boolean isReturnMinecartToOwner() {
-		Object o = getConfigurationValue("Minecarts return to owner");
-		if (o != null) {
-			Boolean value = (Boolean)o;
-			return value.booleanValue();
-		}
-		return true;
+		return coreConfiguration.returnMinecartToOwner;
 	}
 	
 	/**
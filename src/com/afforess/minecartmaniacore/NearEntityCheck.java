@@ -0,0 +1,191 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Entity;
+import org.bukkit.inventory.ItemStack;
+
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
+import com.afforess.minecartmaniacore.event.MinecartManiaEventType;
+import com.afforess.minecartmaniacore.event.MinecartNearEntityEvent;
+import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
+import com.afforess.minecartmaniacore.utils.EntityUtils;
+
+/**
+ * Checks the entities near a minecart in three stages. The state of the minecart and the entities is copied on the main thread
+ * by capture, the decisions about what to do with each entity are made by evaluate, which is safe to run on any thread, and 
+ * the results are applied to the live entities by apply, back on the main thread.
+ * @author Afforess
+ */
+public class NearEntityCheck {
+	private final MinecartManiaMinecart minecart;
+	private final ArrayList<EntitySnapshot> entities;
+	private final double x, y, z;
+	private final double motionX, motionZ;
+	private final CompassDirection direction;
+	private final int range;
+	private final int clearRails;
+	private final boolean killMobs;
+	
+	private final ArrayList<Decision> decisions = new ArrayList<Decision>();
+	
+	private static class Decision {
+		final EntitySnapshot entity;
+		final boolean kill;
+		final boolean clear;
+		Decision(EntitySnapshot entity, boolean kill, boolean clear) {
+			this.entity = entity;
+			this.kill = kill;
+			this.clear = clear;
+		}
+	}
+	
+	private NearEntityCheck(MinecartManiaMinecart minecart, List<Entity> entities) {
+		this.minecart = minecart;
+		this.entities = new ArrayList<EntitySnapshot>(entities.size());
+		for (Entity e : entities) {
+			this.entities.add(new EntitySnapshot(e, minecart));
+		}
+		Location location = minecart.minecart.getLocation();
+		this.x = location.getX();
+		this.y = location.getY();
+		this.z = location.getZ();
+		this.motionX = minecart.getMotionX();
+		this.motionZ = minecart.getMotionZ();
+		this.direction = minecart.isMoving() ? minecart.getDirectionOfMotion() : CompassDirection.NO_DIRECTION;
+		this.range = minecart.getEntityDetectionRange();
+		this.clearRails = MinecartManiaWorld.getMinecartsClearRailsSetting();
+		this.killMobs = MinecartManiaWorld.isMinecartsKillMobs();
+	}
+	
+	/**
+	 ** Copies the state of the minecart and the given entities. Must be called from the main thread.
+	 ** @param the minecart to check around
+	 ** @param the entities that may be near the minecart
+	 **/
+	public static NearEntityCheck capture(MinecartManiaMinecart minecart, List<Entity> entities) {
+		return new NearEntityCheck(minecart, entities);
+	}
+	
+	public MinecartManiaMinecart getMinecart() {
+		return minecart;
+	}
+	
+	/**
+	 ** Decides what should happen to each entity in range of the minecart. Only reads the copied state, and may be called from any thread.
+	 ** If it fails, no decisions are kept, and apply only resets the minecart so it can be scanned again.
+	 **/
+	public void evaluate() {
+		try {
+			decide();
+		}
+		catch (RuntimeException e) {
+			decisions.clear();
+			throw e;
+		}
+	}
+	
+	private void decide() {
+		int rangeSquared = range * range;
+		for (EntitySnapshot e : entities) {
+			if (e.dead) {
+				continue;
+			}
+			double dx = e.x - x;
+			double dy = e.y - y;
+			double dz = e.z - z;
+			double distance = dx * dx + dy * dy + dz * dz;
+			if (distance <= rangeSquared) {
+				//by default drop arrows
+				boolean remove = e.arrow;
+				//kill nearby animals before we bump into them
+				if (distance <= 2) {
+					remove = remove || killMobs && (e.living && !e.player);
+				}
+				decisions.add(new Decision(e, remove, shouldClearFromRails(e)));
+			}
+		}
+	}
+	
+	private boolean shouldClearFromRails(EntitySnapshot e) {
+		if (clearRails == 0) {
+			return false;
+		}
+		if (e.riding || e.vehicle || e.owner) {
+			return false;
+		}
+		if (clearRails == 1 && e.living) {
+			return false;
+		}
+		if (clearRails == 2 && e.player) {
+			return false;
+		}
+		return MinecartManiaMinecart.isApproaching(direction, x, z, e.x, e.z);
+	}
+	
+	/**
+	 ** Fires the near entity events and applies the removals, drops and teleports decided by evaluate. Must be called from the main thread.
+	 **/
+	public void apply() {
+		for (Decision decision : decisions) {
+			Entity e = decision.entity.entity;
+			if (MinecartManiaWorld.isDead(e)) {
+				continue;
+			}
+			boolean kill = decision.kill;
+			ItemStack drop = decision.entity.arrow ? new ItemStack(Material.ARROW, 1) : null;
+			if (MinecartManiaEventBus.hasSubscribers(MinecartManiaEventType.MINECART_NEAR_ENTITY)) {
+				MinecartNearEntityEvent mnee = new MinecartNearEntityEvent(minecart, e);
+				mnee.setActionTaken(kill);
+				mnee.setDrop(drop);
+				MinecartManiaEventBus.callEvent(mnee);
+				kill = mnee.isActionTaken();
+				drop = mnee.getDrop();
+			}
+			if (kill) {
+				if (drop != null) {
+					e.getWorld().dropItem(e.getLocation(), drop);
+				}
+				e.remove();
+			}
+			else if (decision.clear) {
+				clearFromRails(e);
+			}
+		}
+		//Reset the flag
+		minecart.setDataValue("MinecartNearEntityEvent", null);
+	}
+	
+	private boolean clearFromRails(Entity e) {
+		Location current = e.getLocation();
+		if (motionX != 0.0D) {
+			if (teleportNear(e, current.getX(), current.getY(), current.getZ() - 3)) {
+				return true;
+			}
+			if (teleportNear(e, current.getX(), current.getY(), current.getZ() + 3)) {
+				return true;
+			}
+		}
+		if (motionZ != 0.0D) {
+			if (teleportNear(e, current.getX() - 3, current.getY(), current.getZ())) {
+				return true;
+			}
+			if (teleportNear(e, current.getX() + 3, current.getY(), current.getZ())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static boolean teleportNear(Entity e, double x, double y, double z) {
+		Location loc = EntityUtils.getValidLocation(MinecartManiaWorld.getBlockAt(e.getWorld(), (int)Math.floor(x), (int)Math.floor(y), (int)Math.floor(z)), 1);
+		if (loc != null) {
+			e.teleportTo(loc);
+			return true;
+		}
+		return false;
+	}
+}
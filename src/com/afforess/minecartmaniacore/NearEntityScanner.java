@@ -0,0 +1,147 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.entity.CraftEntity;
+import org.bukkit.entity.Entity;
+
+import com.afforess.minecartmaniacore.utils.MathUtils;
+
+/**
+ * Finds the entities near minecarts that have moved, once per tick for all minecarts. The entities of each world are sorted
+ * into a grid of chunks once, and each minecart only looks at the chunks within its entity detection range.
+ * @author Afforess
+ */
+public class NearEntityScanner implements Runnable {
+	private static ArrayList<MinecartManiaMinecart> pending = new ArrayList<MinecartManiaMinecart>();
+	//Minecarts that moved while they could not be queued, queued as soon as they can be
+	private static final LinkedHashSet<MinecartManiaMinecart> delayed = new LinkedHashSet<MinecartManiaMinecart>();
+	private static final ConcurrentLinkedQueue<NearEntityCheck> completed = new ConcurrentLinkedQueue<NearEntityCheck>();
+	
+	/**
+	 ** Queues the given minecart to be checked for nearby entities during the next scan. 
+	 ** Minecarts that have been scanned more recently than their scan interval allows, or whose last check has not finished,
+	 ** are queued once they can be, so a minecart that stops moving is still scanned where it stopped.
+	 ** Must be called from the main thread.
+	 ** @param the minecart to scan around
+	 **/
+	public static void queue(MinecartManiaMinecart minecart) {
+		if (!tryQueue(minecart)) {
+			delayed.add(minecart);
+		}
+	}
+	
+	private static boolean tryQueue(MinecartManiaMinecart minecart) {
+		if (minecart.getDataValue("MinecartNearEntityEvent") != null) {
+			return false;
+		}
+		if (MinecartManiaClock.getTick() - minecart.getLastEntityScanTick() < minecart.getEntityScanInterval()) {
+			return false;
+		}
+		//Set the flag now, so the check is not queued again before it runs
+		minecart.setDataValue("MinecartNearEntityEvent", true);
+		pending.add(minecart);
+		return true;
+	}
+	
+	public void run() {
+		long currentTick = MinecartManiaClock.getTick();
+		//Apply the results of the checks that finished since the last tick
+		NearEntityCheck check;
+		while ((check = completed.poll()) != null) {
+			check.apply();
+		}
+		for (Iterator<MinecartManiaMinecart> i = delayed.iterator(); i.hasNext();) {
+			MinecartManiaMinecart minecart = i.next();
+			if (MinecartManiaWorld.isDead(minecart.minecart) || tryQueue(minecart)) {
+				i.remove();
+			}
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		ArrayList<MinecartManiaMinecart> minecarts = pending;
+		pending = new ArrayList<MinecartManiaMinecart>();
+		
+		HashMap<String, HashMap<Long, ArrayList<Entity>>> grids = new HashMap<String, HashMap<Long, ArrayList<Entity>>>();
+		for (MinecartManiaMinecart minecart : minecarts) {
+			minecart.setLastEntityScanTick(currentTick);
+			if (MinecartManiaWorld.isDead(minecart.minecart)) {
+				minecart.setDataValue("MinecartNearEntityEvent", null);
+				continue;
+			}
+			World world = minecart.minecart.getWorld();
+			HashMap<Long, ArrayList<Entity>> grid = grids.get(world.getName());
+			if (grid == null) {
+				grid = buildGrid(world);
+				grids.put(world.getName(), grid);
+			}
+			List<Entity> nearby = getNearbyEntities(grid, minecart.minecart.getLocation(), minecart.getEntityDetectionRange());
+			if (nearby.isEmpty()) {
+				minecart.setDataValue("MinecartNearEntityEvent", null);
+				continue;
+			}
+			final NearEntityCheck nearEntityCheck = NearEntityCheck.capture(minecart, nearby);
+			final MinecartManiaMinecart scanned = minecart;
+			//No reason to keep the rest on the main thread, fire it on a second thread
+			MinecartManiaTaskScheduler.doAsyncTask("Minecart Near Entity Check", new Runnable() {
+				public void run() {
+					try {
+						nearEntityCheck.evaluate();
+					}
+					finally {
+						//Always hand the check back, even if it failed, so the flag on the minecart is reset
+						completed.add(nearEntityCheck);
+					}
+				}
+			}, 0, new Runnable() {
+				public void run() {
+					//The check will never run, so let the minecart be scanned again
+					scanned.setDataValue("MinecartNearEntityEvent", null);
+				}
+			});
+		}
+	}
+	
+	private static HashMap<Long, ArrayList<Entity>> buildGrid(World world) {
+		HashMap<Long, ArrayList<Entity>> grid = new HashMap<Long, ArrayList<Entity>>();
+		for (Entity e : world.getEntities()) {
+			net.minecraft.server.Entity handle = ((CraftEntity)e).getHandle();
+			Long key = MathUtils.packChunkPosition(((int)Math.floor(handle.locX)) >> 4, ((int)Math.floor(handle.locZ)) >> 4);
+			ArrayList<Entity> cell = grid.get(key);
+			if (cell == null) {
+				cell = new ArrayList<Entity>();
+				grid.put(key, cell);
+			}
+			cell.add(e);
+		}
+		return grid;
+	}
+	
+	private static List<Entity> getNearbyEntities(HashMap<Long, ArrayList<Entity>> grid, Location location, int range) {
+		ArrayList<Entity> nearby = new ArrayList<Entity>();
+		double x = location.getX();
+		double z = location.getZ();
+		int minChunkX = ((int)Math.floor(x - range)) >> 4;
+		int maxChunkX = ((int)Math.floor(x + range)) >> 4;
+		int minChunkZ = ((int)Math.floor(z - range)) >> 4;
+		int maxChunkZ = ((int)Math.floor(z + range)) >> 4;
+		for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+			for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+				ArrayList<Entity> cell = grid.get(MathUtils.packChunkPosition(chunkX, chunkZ));
+				if (cell == null) {
+					continue;
+				}
+				nearby.addAll(cell);
+			}
+		}
+		return nearby;
+	}
+}
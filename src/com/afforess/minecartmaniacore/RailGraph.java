@@ -0,0 +1,465 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
+import com.afforess.minecartmaniacore.utils.MathUtils;
+import com.afforess.minecartmaniacore.utils.RailShape;
+
+/**
+ * The rail network of a single world, built lazily as minecarts travel over it. Nodes are the centers of track intersections,
+ * and edges are the stretches of straight, curved and sloped track between them.
+ * Rail placement and removal invalidates the affected part of the graph, increments the graph version, and tells the change listeners
+ * which intersections the changed track touched. The graph is stored per chunk, and the part of it in a chunk is dropped when the chunk unloads.
+ * @author Afforess
+ */
+public class RailGraph {
+	public static final int MAX_EDGE_LENGTH = 1024;
+	private static final CompassDirection[] DIRECTIONS = { CompassDirection.NORTH, CompassDirection.EAST, CompassDirection.SOUTH, CompassDirection.WEST };
+	private static final int RAILS = Material.RAILS.getId();
+
+	private final World world;
+	//Keyed by packed chunk position, then by packed block position
+	private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Node>> nodes = new ConcurrentHashMap<Long, ConcurrentHashMap<Long, Node>>();
+	private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Edge[]>> edgeByBlock = new ConcurrentHashMap<Long, ConcurrentHashMap<Long, Edge[]>>();
+	//Nodes at rails that are not intersections, that searches start from. Keyed by packed block position, and kept when chunks unload.
+	private final ConcurrentHashMap<Long, Node> anchors = new ConcurrentHashMap<Long, Node>();
+	private final AtomicInteger version = new AtomicInteger();
+	private volatile ChangeListener[] listeners = new ChangeListener[0];
+
+	public RailGraph(World world) {
+		this.world = world;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 ** Returns the version of this graph. It changes every time rails are added or removed from the graph.
+	 **/
+	public int getVersion() {
+		return version.get();
+	}
+
+	/**
+	 ** Adds a listener to be told when rails in this graph are added or removed
+	 **/
+	public synchronized void addChangeListener(ChangeListener listener) {
+		ChangeListener[] copy = new ChangeListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, copy, 0, listeners.length);
+		copy[listeners.length] = listener;
+		listeners = copy;
+	}
+
+	/**
+	 ** Returns true if the rail at the given location is the center piece of a track intersection.
+	 ** Always read from the world, since the neighbouring rails can change without any block event, but it is only a table lookup
+	 ** on the rail data and the sides with straight track leading in.
+	 ** @param the x - coordinate to check
+	 ** @param the y - coordinate to check
+	 ** @param the z - coordinate to check
+	 **/
+	public boolean isIntersection(int x, int y, int z) {
+		return RailShape.isIntersection(MinecartManiaWorld.getBlockData(world, x, y, z), RailShape.getNeighbourMask(world, x, y, z));
+	}
+
+	/**
+	 ** Returns the intersection node at the given location, or null if the rail there is not an intersection
+	 ** @param the x - coordinate of the intersection
+	 ** @param the y - coordinate of the intersection
+	 ** @param the z - coordinate of the intersection
+	 **/
+	public Node getNode(int x, int y, int z) {
+		if (!isRail(x, y, z) || !isIntersection(x, y, z)) {
+			return null;
+		}
+		ConcurrentHashMap<Long, Node> chunk = getChunk(nodes, x, z);
+		Long key = new Long(MathUtils.packBlockPosition(x, y, z));
+		Node node = chunk.get(key);
+		if (node == null) {
+			node = new Node(x, y, z);
+			Node previous = chunk.putIfAbsent(key, node);
+			if (previous != null) {
+				node = previous;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 ** Returns a node at the given rail to search from, the intersection node if the rail is an intersection, or null if there is no rail there.
+	 ** A node at any other rail is an anchor. Its edges are remembered like those of an intersection, so changes to the track near it,
+	 ** or along the track leaving it, report its position to the change listeners. It is kept until removed with removeAnchor.
+	 ** @param the x - coordinate of the rail
+	 ** @param the y - coordinate of the rail
+	 ** @param the z - coordinate of the rail
+	 **/
+	public Node getAnchor(int x, int y, int z) {
+		if (!isRail(x, y, z)) {
+			return null;
+		}
+		Node node = getNode(x, y, z);
+		if (node != null) {
+			return node;
+		}
+		Long key = new Long(MathUtils.packBlockPosition(x, y, z));
+		node = anchors.get(key);
+		if (node == null) {
+			node = new Node(x, y, z);
+			Node previous = anchors.putIfAbsent(key, node);
+			if (previous != null) {
+				node = previous;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 ** Removes the anchor at the given rail, once nothing searches from it any more
+	 **/
+	public void removeAnchor(int x, int y, int z) {
+		removeNode(anchors.remove(new Long(MathUtils.packBlockPosition(x, y, z))), null);
+	}
+
+	/**
+	 ** Returns the stretch of track leaving the given intersection in the given direction, null if no track leaves in that direction,
+	 ** or UNLOADED if the track runs into an unloaded chunk.
+	 ** The track is followed the first time it is requested, and remembered until the rails along it change.
+	 ** @param the intersection
+	 ** @param the direction to leave in
+	 **/
+	public Edge getEdge(Node node, CompassDirection direction) {
+		int index = indexOf(direction);
+		if (index < 0) {
+			return null;
+		}
+		synchronized (node) {
+			if (!node.traced[index]) {
+				Edge edge = trace(node, node.x, node.y, node.z, 1 << index);
+				if (edge == UNLOADED) {
+					return UNLOADED;
+				}
+				node.edges[index] = edge;
+				node.traced[index] = true;
+				if (edge != null) {
+					addEdgeBlocks(edge);
+				}
+			}
+			return node.edges[index];
+		}
+	}
+
+	/**
+	 ** Invalidates the graph around the given block, after a rail has been placed or removed there.
+	 ** Placing or removing a rail can reshape the rails next to it, so the area around the block is invalidated too.
+	 ** @param the x - coordinate of the changed block
+	 ** @param the y - coordinate of the changed block
+	 ** @param the z - coordinate of the changed block
+	 **/
+	public void invalidate(int x, int y, int z) {
+		HashSet<Long> touched = new HashSet<Long>();
+		for (int dx = -2; dx <= 2; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dz = -2; dz <= 2; dz++) {
+					Long key = new Long(MathUtils.packBlockPosition(x + dx, y + dy, z + dz));
+					ConcurrentHashMap<Long, Node> nodeChunk = nodes.get(chunkKey(x + dx, z + dz));
+					if (nodeChunk != null) {
+						removeNode(nodeChunk.remove(key), touched);
+					}
+					//anchors stay, only their edges are followed again
+					removeNode(anchors.get(key), touched);
+					ConcurrentHashMap<Long, Edge[]> edgeChunk = edgeByBlock.get(chunkKey(x + dx, z + dz));
+					Edge[] edges = edgeChunk == null ? null : edgeChunk.get(key);
+					if (edges != null) {
+						for (Edge edge : edges) {
+							removeEdge(edge, touched);
+						}
+					}
+				}
+			}
+		}
+		version.incrementAndGet();
+		for (ChangeListener listener : listeners) {
+			listener.onRailsChanged(this, touched);
+		}
+	}
+
+	/**
+	 ** Drops the part of the graph in the given chunk, after it unloads. Edges running through the chunk are dropped too,
+	 ** and are followed again when next requested. The rails themselves have not changed, so the version stays the same.
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	public void unloadChunk(int chunkX, int chunkZ) {
+		Long key = new Long(MathUtils.packChunkPosition(chunkX, chunkZ));
+		ConcurrentHashMap<Long, Node> nodeChunk = nodes.remove(key);
+		ConcurrentHashMap<Long, Edge[]> edgeChunk = edgeByBlock.remove(key);
+		if (nodeChunk == null && edgeChunk == null) {
+			return;
+		}
+		if (nodeChunk != null) {
+			for (Node node : nodeChunk.values()) {
+				removeNode(node, null);
+			}
+		}
+		if (edgeChunk != null) {
+			for (Edge[] edges : edgeChunk.values()) {
+				for (Edge edge : edges) {
+					removeEdge(edge, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 ** Removes the node and the edges leaving it, adding the positions of the intersections they touched to the given set, if not null
+	 **/
+	private void removeNode(Node node, Set<Long> touched) {
+		if (node != null) {
+			if (touched != null) {
+				touched.add(new Long(node.getPosition()));
+			}
+			synchronized (node) {
+				for (int i = 0; i < 4; i++) {
+					removeEdge(node.edges[i], touched);
+				}
+			}
+		}
+	}
+
+	private void removeEdge(Edge edge, Set<Long> touched) {
+		if (edge == null) {
+			return;
+		}
+		if (touched != null) {
+			touched.add(new Long(edge.from.getPosition()));
+			if (edge.to != null) {
+				touched.add(new Long(edge.to.getPosition()));
+			}
+		}
+		synchronized (edge.from) {
+			int index = indexOf(edge.direction);
+			if (edge.from.edges[index] == edge) {
+				edge.from.edges[index] = null;
+				edge.from.traced[index] = false;
+			}
+		}
+		for (long block : edge.blocks) {
+			ConcurrentHashMap<Long, Edge[]> chunk = edgeByBlock.get(chunkKey(MathUtils.unpackBlockX(block), MathUtils.unpackBlockZ(block)));
+			if (chunk == null) {
+				continue;
+			}
+			Long key = new Long(block);
+			Edge[] edges = chunk.get(key);
+			if (edges == null) {
+				continue;
+			}
+			ArrayList<Edge> remaining = new ArrayList<Edge>(edges.length);
+			for (Edge e : edges) {
+				if (e != edge) {
+					remaining.add(e);
+				}
+			}
+			if (remaining.isEmpty()) {
+				chunk.remove(key);
+			}
+			else {
+				chunk.put(key, remaining.toArray(new Edge[remaining.size()]));
+			}
+		}
+	}
+
+	private void addEdgeBlocks(Edge edge) {
+		for (long block : edge.blocks) {
+			ConcurrentHashMap<Long, Edge[]> chunk = getChunk(edgeByBlock, MathUtils.unpackBlockX(block), MathUtils.unpackBlockZ(block));
+			Long key = new Long(block);
+			Edge[] edges = chunk.get(key);
+			if (edges == null) {
+				chunk.put(key, new Edge[] { edge });
+			}
+			else {
+				Edge[] copy = new Edge[edges.length + 1];
+				System.arraycopy(edges, 0, copy, 0, edges.length);
+				copy[edges.length] = edge;
+				chunk.put(key, copy);
+			}
+		}
+	}
+
+	private static Long chunkKey(int x, int z) {
+		return new Long(MathUtils.packChunkPosition(x >> 4, z >> 4));
+	}
+
+	/**
+	 ** Returns the map of blocks in the chunk containing the given block, creating it if needed
+	 **/
+	private static <V> ConcurrentHashMap<Long, V> getChunk(ConcurrentHashMap<Long, ConcurrentHashMap<Long, V>> map, int x, int z) {
+		Long key = chunkKey(x, z);
+		ConcurrentHashMap<Long, V> chunk = map.get(key);
+		if (chunk == null) {
+			chunk = new ConcurrentHashMap<Long, V>();
+			ConcurrentHashMap<Long, V> previous = map.putIfAbsent(key, chunk);
+			if (previous != null) {
+				chunk = previous;
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 ** Returned in place of an edge when the track runs into an unloaded chunk
+	 **/
+	public static final Edge UNLOADED = new Edge(null, CompassDirection.NO_DIRECTION, null, 0, 0, 0, CompassDirection.NO_DIRECTION, new long[0]);
+
+	/**
+	 ** Follows the track from any rail in the given direction until it reaches an intersection or ends.
+	 ** The result is not remembered. Returns null if the rail has no track in that direction, or UNLOADED if the track runs into an unloaded chunk.
+	 ** @param the x - coordinate of the rail to start at
+	 ** @param the y - coordinate of the rail to start at
+	 ** @param the z - coordinate of the rail to start at
+	 ** @param the direction to follow
+	 **/
+	public Edge traceFrom(int x, int y, int z, CompassDirection direction) {
+		int side = RailShape.toSide(direction);
+		if (side == 0) {
+			return null;
+		}
+		return trace(null, x, y, z, side);
+	}
+
+	private Edge trace(Node node, int x, int y, int z, int side) {
+		ArrayList<Long> blocks = new ArrayList<Long>();
+		CompassDirection start = RailShape.toDirection(side);
+		int data = MinecartManiaWorld.getBlockData(world, x, y, z);
+		for (int length = 1; length <= MAX_EDGE_LENGTH; length++) {
+			int nx = x + RailShape.getOffsetX(side);
+			int nz = z + RailShape.getOffsetZ(side);
+			if (!world.isChunkLoaded(nx >> 4, nz >> 4)) {
+				return UNLOADED;
+			}
+			int ny = RailShape.getConnectedRailY(world, x, y, z, data, side);
+			if (ny == Integer.MIN_VALUE) {
+				//track ends, or does not connect back
+				return length == 1 ? null : new Edge(node, start, null, x, y, z, RailShape.toDirection(side), toArray(blocks));
+			}
+			x = nx;
+			y = ny;
+			z = nz;
+			blocks.add(new Long(MathUtils.packBlockPosition(x, y, z)));
+			if (isIntersection(x, y, z)) {
+				return new Edge(node, start, getNode(x, y, z), x, y, z, RailShape.toDirection(side), toArray(blocks));
+			}
+			data = MinecartManiaWorld.getBlockData(world, x, y, z);
+			int exit = RailShape.getExit(data, RailShape.getOpposite(side));
+			if (exit == 0) {
+				return new Edge(node, start, null, x, y, z, RailShape.toDirection(side), toArray(blocks));
+			}
+			side = exit;
+		}
+		//a loop, or too long to follow
+		return new Edge(node, start, null, x, y, z, RailShape.toDirection(side), toArray(blocks));
+	}
+
+	private static long[] toArray(ArrayList<Long> list) {
+		long[] array = new long[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i).longValue();
+		}
+		return array;
+	}
+
+	private boolean isRail(int x, int y, int z) {
+		return MinecartManiaWorld.getBlockIdAt(world, x, y, z) == RAILS;
+	}
+
+	private static int indexOf(CompassDirection direction) {
+		for (int i = 0; i < 4; i++) {
+			if (DIRECTIONS[i] == direction) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Told when rails in a graph are added or removed
+	 */
+	public interface ChangeListener {
+
+		/**
+		 * Called after the graph around a changed rail has been invalidated
+		 * @param graph that changed
+		 * @param intersections whose track was changed, as packed block positions
+		 */
+		public void onRailsChanged(RailGraph graph, Set<Long> intersections);
+	}
+
+	/**
+	 * The center piece of a track intersection
+	 */
+	public static class Node {
+		public final int x, y, z;
+		private final Edge[] edges = new Edge[4];
+		private final boolean[] traced = new boolean[4];
+
+		Node(int x, int y, int z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		public long getPosition() {
+			return MathUtils.packBlockPosition(x, y, z);
+		}
+	}
+
+	/**
+	 * A stretch of track leaving an intersection, ending at another intersection or where the track ends
+	 */
+	public static class Edge {
+		/**
+		 ** The intersection this track leaves, or null if it was followed with traceFrom
+		 **/
+		public final Node from;
+		public final CompassDirection direction;
+		/**
+		 ** The intersection this track leads to, or null if the track ends
+		 **/
+		public final Node to;
+		/**
+		 ** The last rail of this track
+		 **/
+		public final int endX, endY, endZ;
+		/**
+		 ** The direction of travel when the end of this track is reached
+		 **/
+		public final CompassDirection arrival;
+		private final long[] blocks;
+
+		Edge(Node from, CompassDirection direction, Node to, int endX, int endY, int endZ, CompassDirection arrival, long[] blocks) {
+			this.from = from;
+			this.direction = direction;
+			this.to = to;
+			this.endX = endX;
+			this.endY = endY;
+			this.endZ = endZ;
+			this.arrival = arrival;
+			this.blocks = blocks;
+		}
+
+		/**
+		 ** Returns the number of rails from the intersection this track leaves to the end of the track
+		 **/
+		public int getLength() {
+			return blocks.length;
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
+import com.afforess.minecartmaniacore.utils.MathUtils;
+import com.afforess.minecartmaniacore.utils.RailShape;
+
+/**
+ * Routes minecarts to named destinations over the rail graph of a world.
+ * For each destination, the shortest path from every reachable intersection is found once, and the direction to take at each
+ * intersection is stored in a table. When the rails in the world change, only the tables whose search reached the changed track are rebuilt.
+ * Tables are built a few intersections at a time by the RouteBuilder each tick, and the old table is used until the new one is done,
+ * so a new destination has no route for the first few ticks after it is set.
+ * @author Afforess
+ */
+public class RailRouter implements RailGraph.ChangeListener {
+	public static final int MAX_INTERSECTIONS = 10000;
+	//Intersections searched each tick, over all routers
+	public static final int INTERSECTIONS_PER_TICK = 256;
+	//How long to wait before trying again to route through track in unloaded chunks, or to a destination with no rail yet
+	private static final long RETRY_UNLOADED = 5000L;
+	private static final CompassDirection[] DIRECTIONS = { CompassDirection.NORTH, CompassDirection.EAST, CompassDirection.SOUTH, CompassDirection.WEST };
+	private static final LinkedList<Build> builds = new LinkedList<Build>();
+
+	private final RailGraph graph;
+	private final ConcurrentHashMap<String, Destination> destinations = new ConcurrentHashMap<String, Destination>();
+
+	public RailRouter(RailGraph graph) {
+		this.graph = graph;
+	}
+
+	public RailGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 ** Adds or moves a named destination. The destination must be a rail.
+	 ** @param the name of the destination
+	 ** @param the x - coordinate of the destination
+	 ** @param the y - coordinate of the destination
+	 ** @param the z - coordinate of the destination
+	 **/
+	public void setDestination(String name, int x, int y, int z) {
+		Destination destination = new Destination(x, y, z);
+		Destination previous = destinations.put(name.toLowerCase(), destination);
+		if (previous != null) {
+			release(previous);
+		}
+		destination.rebuild();
+	}
+
+	public void removeDestination(String name) {
+		Destination previous = destinations.remove(name.toLowerCase());
+		if (previous != null) {
+			release(previous);
+		}
+	}
+
+	/**
+	 ** Stops building the table of a removed destination, and removes its anchor from the graph, unless another destination shares it
+	 **/
+	private void release(Destination destination) {
+		destination.cancel();
+		for (Destination other : destinations.values()) {
+			if (other.x == destination.x && other.y == destination.y && other.z == destination.z) {
+				return;
+			}
+		}
+		graph.removeAnchor(destination.x, destination.y, destination.z);
+	}
+
+	public boolean hasDestination(String name) {
+		return destinations.containsKey(name.toLowerCase());
+	}
+
+	/**
+	 ** Returns the direction to leave the intersection at the given location in, to reach the named destination by the shortest path.
+	 ** Returns NO_DIRECTION if the destination is unknown, unreachable, is the intersection itself, or its table is not built yet.
+	 ** @param the name of the destination
+	 ** @param the x - coordinate of the intersection
+	 ** @param the y - coordinate of the intersection
+	 ** @param the z - coordinate of the intersection
+	 **/
+	public CompassDirection getNextDirection(String name, int x, int y, int z) {
+		Destination destination = destinations.get(name.toLowerCase());
+		if (destination == null) {
+			return CompassDirection.NO_DIRECTION;
+		}
+		HashMap<Long, CompassDirection> table = destination.getTable();
+		CompassDirection direction = table.get(new Long(MathUtils.packBlockPosition(x, y, z)));
+		return direction == null ? CompassDirection.NO_DIRECTION : direction;
+	}
+
+	/**
+	 ** Rebuilds the tables of the destinations whose search reached any of the changed intersections.
+	 ** Each search starts from an anchor node at the destination, see RailGraph.getAnchor, so changes to the track leaving the destination
+	 ** are reported too, even when no intersection is reachable from it yet.
+	 **/
+	public void onRailsChanged(RailGraph graph, Set<Long> intersections) {
+		for (Destination destination : destinations.values()) {
+			destination.onRailsChanged(intersections);
+		}
+	}
+
+	/**
+	 ** Continues the table builds that are in progress, searching up to the given number of intersections over all of them.
+	 ** Must be run on the main thread, since the search reads the world.
+	 ** @param the number of intersections to search
+	 **/
+	static void continueBuilds(int budget) {
+		LinkedList<Build> done = new LinkedList<Build>();
+		synchronized (builds) {
+			while (budget > 0 && !builds.isEmpty()) {
+				Build build = builds.getFirst();
+				budget = build.step(budget);
+				if (build.isDone()) {
+					done.add(builds.removeFirst());
+				}
+			}
+		}
+		//Outside the lock on the builds, destinations lock themselves before the builds
+		for (Build build : done) {
+			build.destination.finish(build);
+		}
+	}
+
+	private class Destination {
+		final int x, y, z;
+		private volatile HashMap<Long, CompassDirection> table = new HashMap<Long, CompassDirection>();
+		private boolean complete = true;
+		private long built;
+		private Build build = null;
+
+		Destination(int x, int y, int z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		HashMap<Long, CompassDirection> getTable() {
+			synchronized (this) {
+				if (build == null && !complete && System.currentTimeMillis() - built > RETRY_UNLOADED) {
+					rebuild();
+				}
+			}
+			return table;
+		}
+
+		synchronized void onRailsChanged(Set<Long> intersections) {
+			if (intersections.contains(new Long(MathUtils.packBlockPosition(x, y, z)))) {
+				rebuild();
+				return;
+			}
+			for (Long position : intersections) {
+				if (table.containsKey(position) || (build != null && build.next.containsKey(position))) {
+					rebuild();
+					return;
+				}
+			}
+		}
+
+		/**
+		 ** Starts a new build of the table, replacing any build in progress, which may have read the old track
+		 **/
+		synchronized void rebuild() {
+			cancel();
+			build = new Build(this);
+			synchronized (builds) {
+				builds.add(build);
+			}
+		}
+
+		synchronized void cancel() {
+			if (build != null) {
+				synchronized (builds) {
+					builds.remove(build);
+				}
+				build = null;
+			}
+		}
+
+		synchronized void finish(Build done) {
+			if (build == done) {
+				table = done.next;
+				complete = done.complete;
+				built = System.currentTimeMillis();
+				build = null;
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra's algorithm run outward from a destination, which can be paused between steps. Track is two way, so the direction to take
+	 * at an intersection is the reverse of the direction the search arrived at it from.
+	 */
+	private class Build {
+		final Destination destination;
+		final HashMap<Long, CompassDirection> next = new HashMap<Long, CompassDirection>();
+		private final HashMap<Long, Integer> distances = new HashMap<Long, Integer>();
+		private final PriorityQueue<Step> queue = new PriorityQueue<Step>();
+		private boolean started = false;
+		boolean complete = true;
+
+		Build(Destination destination) {
+			this.destination = destination;
+		}
+
+		boolean isDone() {
+			return started && (queue.isEmpty() || next.size() >= MAX_INTERSECTIONS);
+		}
+
+		/**
+		 ** Searches intersections until the budget is spent or the search is done, and returns what is left of the budget
+		 **/
+		int step(int budget) {
+			if (!started) {
+				start();
+				budget--;
+			}
+			while (budget > 0 && !isDone()) {
+				Step step = queue.poll();
+				Long key = new Long(step.node.getPosition());
+				if (next.containsKey(key)) {
+					continue;
+				}
+				budget--;
+				next.put(key, step.direction);
+				for (CompassDirection direction : DIRECTIONS) {
+					RailGraph.Edge edge = graph.getEdge(step.node, direction);
+					if (edge == RailGraph.UNLOADED) {
+						complete = false;
+						continue;
+					}
+					if (edge == null || edge.to == null) {
+						continue;
+					}
+					Long toKey = new Long(edge.to.getPosition());
+					int distance = step.distance + edge.getLength();
+					Integer known = distances.get(toKey);
+					if (next.containsKey(toKey) || (known != null && known.intValue() <= distance)) {
+						continue;
+					}
+					distances.put(toKey, new Integer(distance));
+					queue.add(new Step(edge.to, distance, reverse(edge.arrival)));
+				}
+			}
+			return budget;
+		}
+
+		private void start() {
+			started = true;
+			RailGraph.Node start = graph.getAnchor(destination.x, destination.y, destination.z);
+			if (start == null) {
+				//no rail at the destination yet, try again later
+				complete = false;
+				return;
+			}
+			queue.add(new Step(start, 0, CompassDirection.NO_DIRECTION));
+		}
+	}
+
+	private static CompassDirection reverse(CompassDirection direction) {
+		return RailShape.toDirection(RailShape.getOpposite(RailShape.toSide(direction)));
+	}
+
+	private static class Step implements Comparable<Step> {
+		final RailGraph.Node node;
+		final int distance;
+		final CompassDirection direction;
+
+		Step(RailGraph.Node node, int distance, CompassDirection direction) {
+			this.node = node;
+			this.distance = distance;
+			this.direction = direction;
+		}
+
+		public int compareTo(Step other) {
+			return distance < other.distance ? -1 : (distance > other.distance ? 1 : 0);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.afforess.minecartmaniacore;
+
+/**
+ * Continues building the route tables of the rail routers, run by the MinecartManiaClock each tick.
+ * See RailRouter.continueBuilds.
+ * @author Afforess
+ */
+public class RouteBuilder implements Runnable {
+
+	public void run() {
+		RailRouter.continueBuilds(RailRouter.INTERSECTIONS_PER_TICK);
+	}
+}
@@ -0,0 +1,70 @@
+package com.afforess.minecartmaniacore;
+
+import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
+
+/**
+ * The commands the core understands on a line of a sign. Lines are parsed once, when the text of the sign is cached, see MinecartManiaSign.getCommand.
+ * @author Afforess
+ */
+public enum SignCommand {
+	LAUNCH_NORTH("launch north", "[Launch North]", "[North]", CompassDirection.NORTH),
+	LAUNCH_EAST("launch east", "[Launch East]", "[East]", CompassDirection.EAST),
+	LAUNCH_SOUTH("launch south", "[Launch South]", "[South]", CompassDirection.SOUTH),
+	LAUNCH_WEST("launch west", "[Launch West]", "[West]", CompassDirection.WEST),
+	PREVIOUS_DIR("previous dir", "[Previous Dir]", null, CompassDirection.NO_DIRECTION),
+	LAUNCH_PLAYER("launch player", "[Launch Player]", null, CompassDirection.NO_DIRECTION),
+	NONE(null, null, null, CompassDirection.NO_DIRECTION);
+
+	private final String keyword;
+	private final String text;
+	private final String legacyText;
+	private final CompassDirection direction;
+
+	private SignCommand(String keyword, String text, String legacyText, CompassDirection direction) {
+		this.keyword = keyword;
+		this.text = text;
+		this.legacyText = legacyText;
+		this.direction = direction;
+	}
+
+	/**
+	 ** Returns the standard text for this command, as it is written back to signs
+	 **/
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 ** Returns the old format of this command, or null if it has none
+	 **/
+	public String getLegacyText() {
+		return legacyText;
+	}
+
+	/**
+	 ** Returns the direction this command launches in, or NO_DIRECTION
+	 **/
+	public CompassDirection getDirection() {
+		return direction;
+	}
+
+	/**
+	 ** Returns the command on the given line of a sign, or NONE
+	 ** @param the line, as written
+	 ** @param the line, in lower case
+	 **/
+	public static SignCommand parse(String line, String lowerCaseLine) {
+		for (SignCommand command : values()) {
+			if (command.keyword == null) {
+				continue;
+			}
+			if (lowerCaseLine.contains(command.keyword)) {
+				return command;
+			}
+			if (command.legacyText != null && line.contains(command.legacyText)) {
+				return command;
+			}
+		}
+		return NONE;
+	}
+}
@@ -0,0 +1,188 @@
+package com.afforess.minecartmaniacore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Sign;
+
+import com.afforess.minecartmaniacore.utils.MathUtils;
+
+/**
+ * Fills the sign index of MinecartManiaWorld for chunks as they load. Each chunk is read a slice of columns at a time,
+ * with a fixed number of blocks read each tick, so loading many chunks at once does not stall the server. Run by the MinecartManiaClock each tick.
+ * A chunk that is searched before its scan is done is finished right away, see finish.
+ * @author Afforess
+ */
+public class SignIndexer implements Runnable {
+	//Blocks read each tick, a quarter of a chunk
+	public static final int BLOCKS_PER_TICK = 8192;
+	private static final LinkedList<ChunkScan> queue = new LinkedList<ChunkScan>();
+	private static final HashMap<String, HashMap<Long, ChunkScan>> scans = new HashMap<String, HashMap<Long, ChunkScan>>();
+
+	public void run() {
+		synchronized (SignIndexer.class) {
+			int budget = BLOCKS_PER_TICK;
+			while (budget > 0 && !queue.isEmpty()) {
+				ChunkScan scan = queue.getFirst();
+				if (!scan.world.isChunkLoaded(scan.chunkX, scan.chunkZ)) {
+					removeScan(scan);
+					continue;
+				}
+				budget = scan.scan(budget);
+				if (scan.isDone()) {
+					removeScan(scan);
+					MinecartManiaWorld.putSignChunk(scan.world, scan.chunkX, scan.chunkZ, scan.getSigns());
+				}
+			}
+		}
+	}
+
+	/**
+	 ** Queues the given chunk to have its signs indexed over the next ticks, unless it is already indexed or queued
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	public static synchronized void queue(World w, int chunkX, int chunkZ) {
+		if (MinecartManiaWorld.isSignChunkIndexed(w, chunkX, chunkZ)) {
+			return;
+		}
+		HashMap<Long, ChunkScan> chunks = scans.get(w.getName());
+		if (chunks == null) {
+			chunks = new HashMap<Long, ChunkScan>();
+			scans.put(w.getName(), chunks);
+		}
+		Long key = new Long(MathUtils.packChunkPosition(chunkX, chunkZ));
+		if (!chunks.containsKey(key)) {
+			ChunkScan scan = new ChunkScan(w, chunkX, chunkZ);
+			chunks.put(key, scan);
+			queue.add(scan);
+		}
+	}
+
+	/**
+	 ** Reads the rest of the given chunk now, or all of it if it was not queued, and returns the signs in it
+	 ** @param the world the chunk is in
+	 ** @param the x - coordinate of the chunk
+	 ** @param the z - coordinate of the chunk
+	 **/
+	static synchronized MinecartManiaSign[] finish(World w, int chunkX, int chunkZ) {
+		ChunkScan scan = getScan(w, chunkX, chunkZ);
+		if (scan == null) {
+			scan = new ChunkScan(w, chunkX, chunkZ);
+		}
+		else {
+			removeScan(scan);
+		}
+		scan.scan(Integer.MAX_VALUE);
+		return scan.getSigns();
+	}
+
+	/**
+	 ** Updates the text of a sign in a chunk that is still being scanned. Returns false if the chunk is not being scanned.
+	 **/
+	static synchronized boolean update(World w, int x, int y, int z, String[] lines) {
+		ChunkScan scan = getScan(w, x >> 4, z >> 4);
+		if (scan == null) {
+			return false;
+		}
+		scan.put(new MinecartManiaSign(w, x, y, z, lines));
+		return true;
+	}
+
+	/**
+	 ** Removes a sign from a chunk that is still being scanned. Returns false if the chunk is not being scanned.
+	 **/
+	static synchronized boolean remove(World w, int x, int y, int z) {
+		ChunkScan scan = getScan(w, x >> 4, z >> 4);
+		if (scan == null) {
+			return false;
+		}
+		scan.remove(x, y, z);
+		return true;
+	}
+
+	/**
+	 ** Stops scanning the given chunk, after it unloads
+	 **/
+	static synchronized void unload(World w, int chunkX, int chunkZ) {
+		ChunkScan scan = getScan(w, chunkX, chunkZ);
+		if (scan != null) {
+			removeScan(scan);
+		}
+	}
+
+	private static ChunkScan getScan(World w, int chunkX, int chunkZ) {
+		HashMap<Long, ChunkScan> chunks = scans.get(w.getName());
+		return chunks == null ? null : chunks.get(new Long(MathUtils.packChunkPosition(chunkX, chunkZ)));
+	}
+
+	private static void removeScan(ChunkScan scan) {
+		HashMap<Long, ChunkScan> chunks = scans.get(scan.world.getName());
+		if (chunks != null) {
+			chunks.remove(new Long(MathUtils.packChunkPosition(scan.chunkX, scan.chunkZ)));
+		}
+		queue.remove(scan);
+	}
+
+	private static class ChunkScan {
+		final World world;
+		final int chunkX, chunkZ;
+		private final ArrayList<MinecartManiaSign> found = new ArrayList<MinecartManiaSign>();
+		//The next column of the chunk to read, 0 - 255
+		private int column = 0;
+
+		ChunkScan(World world, int chunkX, int chunkZ) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		boolean isDone() {
+			return column >= 256;
+		}
+
+		/**
+		 ** Reads whole columns until the budget of blocks is spent, and returns what is left of it
+		 **/
+		int scan(int budget) {
+			while (column < 256 && budget > 0) {
+				int x = (chunkX << 4) + (column >> 4);
+				int z = (chunkZ << 4) + (column & 15);
+				for (int y = 0; y < 128; y++) {
+					if (MinecartManiaSign.isSign(MinecartManiaWorld.getBlockIdAt(world, x, y, z))) {
+						BlockState state = MinecartManiaWorld.getBlockAt(world, x, y, z).getState();
+						if (state instanceof Sign) {
+							put(new MinecartManiaSign(world, x, y, z, ((Sign)state).getLines()));
+						}
+					}
+				}
+				column++;
+				budget -= 128;
+			}
+			return budget;
+		}
+
+		void put(MinecartManiaSign sign) {
+			remove(sign.getX(), sign.getY(), sign.getZ());
+			found.add(sign);
+		}
+
+		void remove(int x, int y, int z) {
+			for (int i = 0; i < found.size(); i++) {
+				MinecartManiaSign sign = found.get(i);
+				if (sign.getX() == x && sign.getY() == y && sign.getZ() == z) {
+					found.remove(i);
+					return;
+				}
+			}
+		}
+
+		MinecartManiaSign[] getSigns() {
+			return found.toArray(new MinecartManiaSign[found.size()]);
+		}
+	}
+}
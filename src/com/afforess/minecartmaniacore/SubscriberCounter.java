@@ -0,0 +1,17 @@
+package com.afforess.minecartmaniacore;
+
+import com.afforess.minecartmaniacore.event.MinecartManiaEventBus;
+
+/**
+ * Recounts the custom event listeners registered with Bukkit once a second, run by the MinecartManiaClock each tick.
+ * See MinecartManiaEventBus.refreshBukkitSubscribers.
+ * @author Afforess
+ */
+public class SubscriberCounter implements Runnable {
+
+	public void run() {
+		if (MinecartManiaClock.getTick() % MinecartManiaClock.TICKS_PER_SECOND == 0) {
+			MinecartManiaEventBus.refreshBukkitSubscribers();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.afforess.minecartmaniacore.config;
+
+import java.util.Map;
+
+import com.afforess.minecartmaniacore.MinecartManiaWorld;
+
+/**
+ * An immutable, typed copy of Minecart Mania Core's settings. A new one is created each time the configuration is loaded,
+ * and published all at once, so readers never see a half reloaded configuration.
+ * @author Afforess
+ */
+public final class CoreConfiguration {
+	public final boolean minecartsKillMobs;
+	public final int minecartsClearRails;
+	public final boolean keepMinecartsLoaded;
+	public final boolean returnMinecartToOwner;
+	public final int maximumMinecartSpeedPercent;
+	public final int defaultMinecartSpeedPercent;
+	public final int highSpeedBoosterBlockId;
+	public final double highSpeedBoosterBlockMultiplier;
+	public final int lowSpeedBoosterBlockId;
+	public final double lowSpeedBoosterBlockMultiplier;
+	public final int highSpeedBrakeBlockId;
+	public final double highSpeedBrakeBlockDivisor;
+	public final int lowSpeedBrakeBlockId;
+	public final double lowSpeedBrakeBlockDivisor;
+	public final int reverseBlockId;
+	public final int catcherBlockId;
+	public final int ejectorBlockId;
+	public final boolean shardBatchTimeEvent;
+	
+	/**
+	 * Creates the configuration from the given setting values, keyed by setting name. Missing values use the same defaults
+	 * as an unloaded configuration.
+	 * @param values of the settings
+	 */
+	public CoreConfiguration(Map<String, Object> values) {
+		minecartsKillMobs = getBooleanValue(values.get("Minecarts Kill Mobs"), true);
+		minecartsClearRails = MinecartManiaWorld.getIntValue(values.get("Minecarts Clear Rails"));
+		keepMinecartsLoaded = getBooleanValue(values.get("Keep Minecarts Loaded"), false);
+		returnMinecartToOwner = getBooleanValue(values.get("Minecarts return to owner"), true);
+		maximumMinecartSpeedPercent = MinecartManiaWorld.getIntValue(values.get("Maximum Minecart Speed Percent"));
+		defaultMinecartSpeedPercent = MinecartManiaWorld.getIntValue(values.get("Default Minecart Speed Percent"));
+		highSpeedBoosterBlockId = MinecartManiaWorld.getIntValue(values.get("High Speed Booster Block"));
+		highSpeedBoosterBlockMultiplier = MinecartManiaWorld.getDoubleValue(values.get("High Speed Booster Block Multiplier"));
+		lowSpeedBoosterBlockId = MinecartManiaWorld.getIntValue(values.get("Low Speed Booster Block"));
+		lowSpeedBoosterBlockMultiplier = MinecartManiaWorld.getDoubleValue(values.get("Low Speed Booster Block Multiplier"));
+		highSpeedBrakeBlockId = MinecartManiaWorld.getIntValue(values.get("High Speed Brake Block"));
+		highSpeedBrakeBlockDivisor = MinecartManiaWorld.getDoubleValue(values.get("High Speed Brake Block Divisor"));
+		lowSpeedBrakeBlockId = MinecartManiaWorld.getIntValue(values.get("Low Speed Brake Block"));
+		lowSpeedBrakeBlockDivisor = MinecartManiaWorld.getDoubleValue(values.get("Low Speed Brake Block Divisor"));
+		reverseBlockId = MinecartManiaWorld.getIntValue(values.get("Reverse Block"));
+		catcherBlockId = MinecartManiaWorld.getIntValue(values.get("Catcher Block"));
+		ejectorBlockId = MinecartManiaWorld.getIntValue(values.get("Ejector Block"));
+		shardBatchTimeEvent = getBooleanValue(values.get("Shard Batch Time Event"), false);
+	}
+	
+	private static boolean getBooleanValue(Object o, boolean defaultValue) {
+		if (o instanceof Boolean) {
+			return ((Boolean)o).booleanValue();
+		}
+		return defaultValue;
+	}
+}
@@ -112,6 +112,12 @@ public class SettingList {
 				new Integer(Material.IRON_BLOCK.getId()),
 				"Minecarts that pass over this will eject any passengers in the minecart",
 				MinecartManiaCore.description.getName()
+		),
+		new Setting(
+				"Shard Batch Time Event", 
+				Boolean.FALSE, 
+				"The batched minecart time event is fired each tick with a twentieth of the minecarts, chosen by entity id, instead of once a second with all of them. Spreads the work of plugins with timers evenly across ticks.",
+				MinecartManiaCore.description.getName()
 		)
 	};
 
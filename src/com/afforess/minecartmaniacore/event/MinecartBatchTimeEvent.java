@@ -0,0 +1,71 @@
+package com.afforess.minecartmaniacore.event;
+
+import java.util.List;
+
+import com.afforess.minecartmaniacore.MinecartManiaMinecart;
+
+/**
+ * Fired once per second of the MinecartManiaClock for all minecarts together, instead of once per minecart.
+ * If the batch is sharded, it is fired once per tick instead, each time with the minecarts whose entity id modulo the shard count
+ * is the shard, so every minecart is still included once per second.
+ * @author Afforess
+ */
+public class MinecartBatchTimeEvent extends org.bukkit.event.Event {
+	private static final long serialVersionUID = -2389715603357294158L;
+	private final List<MinecartManiaMinecart> minecarts;
+	private final long second;
+	private final long tick;
+	private final int shard;
+	private final int shardCount;
+
+	public MinecartBatchTimeEvent(List<MinecartManiaMinecart> minecarts, long second, long tick, int shard, int shardCount) {
+		super("MinecartBatchTimeEvent");
+		this.minecarts = minecarts;
+		this.second = second;
+		this.tick = tick;
+		this.shard = shard;
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 ** Returns a read only list of the minecarts in this batch
+	 **/
+	public List<MinecartManiaMinecart> getMinecarts() {
+		return minecarts;
+	}
+
+	/**
+	 ** Returns the second of the MinecartManiaClock this batch was fired in
+	 **/
+	public long getSecond() {
+		return second;
+	}
+
+	/**
+	 ** Returns the server tick of the MinecartManiaClock this batch was fired in
+	 **/
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 ** Returns true if this batch holds only one shard of the minecarts
+	 **/
+	public boolean isSharded() {
+		return shardCount > 1;
+	}
+
+	/**
+	 ** Returns the shard of the minecarts in this batch, or 0 if the batch is not sharded
+	 **/
+	public int getShard() {
+		return shard;
+	}
+
+	/**
+	 ** Returns the number of shards the minecarts are split into, or 1 if the batch is not sharded
+	 **/
+	public int getShardCount() {
+		return shardCount;
+	}
+}
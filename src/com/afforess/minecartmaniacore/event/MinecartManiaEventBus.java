@@ -0,0 +1,258 @@
+package com.afforess.minecartmaniacore.event;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.Event.Priority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+
+import com.afforess.minecartmaniacore.MinecartManiaCore;
+
+/**
+ * Delivers Minecart Mania events to the listeners registered for their type. Each type of event keeps its own array of listeners,
+ * so listeners are only called for the events they handle.
+ * Events are still passed on to Bukkit, for listeners registered with Bukkit as custom event listeners.
+ * A listener should be registered with either the bus or Bukkit, not both, or it will receive each event twice.
+ * <p>
+ * Priorities are kept within the bus, and within Bukkit, but not across the two. Bus listeners below Monitor priority are called first,
+ * then the Bukkit listeners in their own priority order, and last the bus listeners of Monitor priority, so monitors still see the final outcome of an event.
+ * <p>
+ * The bus also counts the subscribers to each event type, so events that nobody subscribes to need not be created at all. See hasSubscribers.
+ * Listeners registered with Bukkit must declare the types they handle with registerInterest, or be registered through registerWithBukkit,
+ * so they are counted as soon as they are registered. Custom event listeners registered with Bukkit without doing so are only counted
+ * once the counts are next refreshed, up to a second later, see refreshBukkitSubscribers. Until then they miss the events that are not created,
+ * and Minecart Mania acts as if they did not handle them, for example running control blocks when no listener took a MinecartActionEvent.
+ * Events that are created are always passed on to Bukkit, whatever the counts are.
+ * @author Afforess
+ */
+public class MinecartManiaEventBus {
+	private static final MinecartManiaEventType[] TYPES = MinecartManiaEventType.values();
+	private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+	private static volatile Registration[][] registrations = new Registration[TYPES.length][0];
+	//Subscribers to each event type among the custom event listeners registered with Bukkit, as of the last refresh
+	private static volatile int[] bukkitSubscribers = all(1);
+	//Subscribers to each event type among the listeners that registered their interest
+	private static volatile int[] interestSubscribers = all(0);
+	private static final HashMap<Listener, MinecartManiaEventType[]> interests = new HashMap<Listener, MinecartManiaEventType[]>();
+
+	/**
+	 ** Registers the listener for the event types it handles, see MinecartManiaListener.getEventTypes
+	 ** @param the listener to register
+	 ** @param the priority to call the listener at. Listeners of a higher priority are called later.
+	 **/
+	public static void register(MinecartManiaListener listener, Priority priority) {
+		register(listener, priority, listener.getEventTypes());
+	}
+
+	/**
+	 ** Registers the listener for the given event types
+	 ** @param the listener to register
+	 ** @param the priority to call the listener at. Listeners of a higher priority are called later.
+	 ** @param the event types to call the listener for
+	 **/
+	public static synchronized void register(MinecartManiaListener listener, Priority priority, MinecartManiaEventType... types) {
+		boolean custom = listener.overridesCustomEvent();
+		Registration[][] copy = registrations.clone();
+		for (MinecartManiaEventType type : types) {
+			Registration[] current = copy[type.ordinal()];
+			ArrayList<Registration> list = new ArrayList<Registration>(current.length + 1);
+			boolean added = false;
+			for (Registration r : current) {
+				if (r.listener == listener) {
+					continue;
+				}
+				if (!added && r.priority.ordinal() > priority.ordinal()) {
+					list.add(new Registration(listener, priority, custom));
+					added = true;
+				}
+				list.add(r);
+			}
+			if (!added) {
+				list.add(new Registration(listener, priority, custom));
+			}
+			copy[type.ordinal()] = list.toArray(new Registration[list.size()]);
+		}
+		registrations = copy;
+	}
+
+	/**
+	 ** Removes the listener from every event type it was registered for
+	 **/
+	public static synchronized void unregister(MinecartManiaListener listener) {
+		Registration[][] copy = registrations.clone();
+		for (int i = 0; i < copy.length; i++) {
+			ArrayList<Registration> list = new ArrayList<Registration>(copy[i].length);
+			for (Registration r : copy[i]) {
+				if (r.listener != listener) {
+					list.add(r);
+				}
+			}
+			copy[i] = list.toArray(new Registration[list.size()]);
+		}
+		registrations = copy;
+	}
+
+	/**
+	 ** Registers the given listener with Bukkit as a custom event listener, and declares the event types it handles,
+	 ** see MinecartManiaListener.getEventTypes. Use this instead of registering the listener with Bukkit directly.
+	 ** @param the listener
+	 ** @param the priority to register it with
+	 ** @param the plugin registering it
+	 **/
+	public static void registerWithBukkit(MinecartManiaListener listener, Priority priority, Plugin plugin) {
+		registerInterest(listener);
+		plugin.getServer().getPluginManager().registerEvent(Event.Type.CUSTOM_EVENT, listener, priority, plugin);
+	}
+
+	/**
+	 ** Declares that the given listener, registered with Bukkit instead of the bus, handles the given event types.
+	 ** Must be called when the listener is registered with Bukkit, or the listener may miss events until the next refresh.
+	 ** Replaces any types declared for it before.
+	 ** @param the listener registered with Bukkit
+	 ** @param the event types it handles
+	 **/
+	public static synchronized void registerInterest(Listener listener, MinecartManiaEventType... types) {
+		interests.put(listener, types.clone());
+		countInterests();
+	}
+
+	/**
+	 ** Declares that the given listener, registered with Bukkit instead of the bus, handles the event types it has handlers for,
+	 ** see MinecartManiaListener.getEventTypes
+	 **/
+	public static void registerInterest(MinecartManiaListener listener) {
+		registerInterest(listener, listener.getEventTypes());
+	}
+
+	/**
+	 ** Removes the event types declared for the given listener, after it is unregistered from Bukkit
+	 **/
+	public static synchronized void unregisterInterest(Listener listener) {
+		if (interests.remove(listener) != null) {
+			countInterests();
+		}
+	}
+
+	private static void countInterests() {
+		int[] counts = new int[TYPES.length];
+		for (MinecartManiaEventType[] types : interests.values()) {
+			for (MinecartManiaEventType type : types) {
+				counts[type.ordinal()]++;
+			}
+		}
+		interestSubscribers = counts;
+	}
+
+	/**
+	 ** Returns the number of listeners, registered with the bus or with Bukkit, that handle the given event type.
+	 ** Listeners registered with Bukkit that declared their interest are counted twice, once they are also seen by refreshBukkitSubscribers.
+	 **/
+	public static int getSubscriberCount(MinecartManiaEventType type) {
+		return registrations[type.ordinal()].length + interestSubscribers[type.ordinal()] + bukkitSubscribers[type.ordinal()];
+	}
+
+	/**
+	 ** Returns true if any listener handles the given event type. If not, the event does not need to be created or called.
+	 ** Listeners registered with Bukkit are only counted at once if they declared their interest, see registerInterest.
+	 **/
+	public static boolean hasSubscribers(MinecartManiaEventType type) {
+		return getSubscriberCount(type) > 0;
+	}
+
+	/**
+	 ** Counts the subscribers to each event type among the custom event listeners registered with Bukkit.
+	 ** Called whenever a plugin is enabled or disabled, and once a second by the SubscriberCounter, to pick up listeners registered later
+	 ** that did not declare their interest. Custom event listeners that are not MinecartManiaListeners may handle any event,
+	 ** so they count as subscribers to every type. If the listeners can not be read, every type is assumed to have a subscriber.
+	 **/
+	@SuppressWarnings("unchecked")
+	public static synchronized void refreshBukkitSubscribers() {
+		int[] counts = new int[TYPES.length];
+		try {
+			PluginManager manager = MinecartManiaCore.server.getPluginManager();
+			Field field = manager.getClass().getDeclaredField("listeners");
+			field.setAccessible(true);
+			Map<Event.Type, Collection<RegisteredListener>> listeners = (Map<Event.Type, Collection<RegisteredListener>>)field.get(manager);
+			Collection<RegisteredListener> custom = listeners.get(Event.Type.CUSTOM_EVENT);
+			if (custom != null) {
+				for (RegisteredListener registered : custom) {
+					Listener listener = registered.getListener();
+					if (listener instanceof MinecartManiaListener) {
+						for (MinecartManiaEventType type : ((MinecartManiaListener)listener).getEventTypes()) {
+							counts[type.ordinal()]++;
+						}
+					}
+					else {
+						for (int i = 0; i < counts.length; i++) {
+							counts[i]++;
+						}
+					}
+				}
+			}
+		}
+		catch (Exception e) {
+			counts = all(1);
+		}
+		bukkitSubscribers = counts;
+	}
+
+	private static int[] all(int count) {
+		int[] counts = new int[TYPES.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = count;
+		}
+		return counts;
+	}
+
+	/**
+	 ** Calls the given event on the listeners registered for its type below Monitor priority, then on the listeners registered with Bukkit,
+	 ** and last on the listeners registered for its type at Monitor priority
+	 **/
+	public static void callEvent(Event event) {
+		MinecartManiaEventType type = MinecartManiaEventType.getType(event);
+		Registration[] list = type == null ? NO_REGISTRATIONS : registrations[type.ordinal()];
+		//Registrations are sorted by priority, so the monitors are at the end
+		int i = 0;
+		for (; i < list.length && list[i].priority != Priority.Monitor; i++) {
+			dispatch(type, list[i], event);
+		}
+		MinecartManiaCore.server.getPluginManager().callEvent(event);
+		for (; i < list.length; i++) {
+			dispatch(type, list[i], event);
+		}
+	}
+
+	private static void dispatch(MinecartManiaEventType type, Registration r, Event event) {
+		try {
+			if (r.custom) {
+				r.listener.onCustomEvent(event);
+			}
+			else {
+				type.dispatch(r.listener, event);
+			}
+		}
+		catch (Throwable t) {
+			t.printStackTrace();
+		}
+	}
+
+	private static class Registration {
+		final MinecartManiaListener listener;
+		final Priority priority;
+		//Listeners overriding onCustomEvent are called through it, as Bukkit would
+		final boolean custom;
+
+		Registration(MinecartManiaListener listener, Priority priority, boolean custom) {
+			this.listener = listener;
+			this.priority = priority;
+			this.custom = custom;
+		}
+	}
+}
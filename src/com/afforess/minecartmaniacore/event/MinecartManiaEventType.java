@@ -0,0 +1,150 @@
+package com.afforess.minecartmaniacore.event;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.event.Event;
+
+/**
+ * The types of event fired by Minecart Mania, each with the MinecartManiaListener method that handles it.
+ * The type of an event class is looked up once, and remembered, so dispatching an event does not test it against every event class.
+ * @author Afforess
+ */
+public enum MinecartManiaEventType {
+	MINECART_ACTION(MinecartActionEvent.class, "onMinecartActionEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartActionEvent((MinecartActionEvent)event);
+		}
+	},
+	MINECART_TIME(MinecartTimeEvent.class, "onMinecartTimeEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartTimeEvent((MinecartTimeEvent)event);
+		}
+	},
+	MINECART_BATCH_TIME(MinecartBatchTimeEvent.class, "onMinecartBatchTimeEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartBatchTimeEvent((MinecartBatchTimeEvent)event);
+		}
+	},
+	MINECART_INTERSECTION(MinecartIntersectionEvent.class, "onMinecartIntersectionEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartIntersectionEvent((MinecartIntersectionEvent)event);
+		}
+	},
+	MINECART_MOTION_START(MinecartMotionStartEvent.class, "onMinecartMotionStartEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartMotionStartEvent((MinecartMotionStartEvent)event);
+		}
+	},
+	MINECART_MOTION_STOP(MinecartMotionStopEvent.class, "onMinecartMotionStopEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartMotionStopEvent((MinecartMotionStopEvent)event);
+		}
+	},
+	CHEST_POWERED(ChestPoweredEvent.class, "onChestPoweredEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onChestPoweredEvent((ChestPoweredEvent)event);
+		}
+	},
+	MINECART_DESTROYED(MinecartManiaMinecartDestroyedEvent.class, "onMinecartManiaMinecartDestroyedEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartManiaMinecartDestroyedEvent((MinecartManiaMinecartDestroyedEvent)event);
+		}
+	},
+	MINECART_LAUNCHED(MinecartLaunchedEvent.class, "onMinecartLaunchedEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartLaunchedEvent((MinecartLaunchedEvent)event);
+		}
+	},
+	CHEST_SPAWN_MINECART(ChestSpawnMinecartEvent.class, "onChestSpawnMinecartEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onChestSpawnMinecartEvent((ChestSpawnMinecartEvent)event);
+		}
+	},
+	MINECART_NEAR_ENTITY(MinecartNearEntityEvent.class, "onMinecartNearEntityEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartNearEntityEvent((MinecartNearEntityEvent)event);
+		}
+	},
+	MINECART_CREATED(MinecartManiaMinecartCreatedEvent.class, "onMinecartManiaMinecartCreatedEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartManiaMinecartCreatedEvent((MinecartManiaMinecartCreatedEvent)event);
+		}
+	},
+	MINECART_CLICKED(MinecartClickedEvent.class, "onMinecartClickedEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartClickedEvent((MinecartClickedEvent)event);
+		}
+	},
+	MINECART_BOOSTED(MinecartBoostEvent.class, "onMinecartBoostedEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartBoostedEvent((MinecartBoostEvent)event);
+		}
+	},
+	MINECART_BRAKED(MinecartBrakeEvent.class, "onMinecartBrakedEvent") {
+		void dispatch(MinecartManiaListener listener, Event event) {
+			listener.onMinecartBrakedEvent((MinecartBrakeEvent)event);
+		}
+	};
+
+	private static final ConcurrentHashMap<Class<?>, Object> types = new ConcurrentHashMap<Class<?>, Object>();
+	//Stored for event classes that are not Minecart Mania events, since the map can not hold null
+	private static final Object NONE = new Object();
+
+	private final Class<? extends Event> eventClass;
+	private final String handler;
+
+	private MinecartManiaEventType(Class<? extends Event> eventClass, String handler) {
+		this.eventClass = eventClass;
+		this.handler = handler;
+	}
+
+	public Class<? extends Event> getEventClass() {
+		return eventClass;
+	}
+
+	/**
+	 ** Returns the name of the MinecartManiaListener method that handles this type of event
+	 **/
+	public String getHandlerName() {
+		return handler;
+	}
+
+	/**
+	 ** Calls the method of the listener that handles this type of event
+	 **/
+	abstract void dispatch(MinecartManiaListener listener, Event event);
+
+	/**
+	 ** Returns true if the given listener overrides the method that handles this type of event
+	 **/
+	public boolean isHandledBy(MinecartManiaListener listener) {
+		try {
+			return listener.getClass().getMethod(handler, eventClass).getDeclaringClass() != MinecartManiaListener.class;
+		}
+		catch (NoSuchMethodException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 ** Returns the type of the given event, or null if it is not a Minecart Mania event
+	 **/
+	public static MinecartManiaEventType getType(Event event) {
+		Class<?> clazz = event.getClass();
+		Object type = types.get(clazz);
+		if (type == null) {
+			type = NONE;
+			for (Class<?> c = clazz; c != null && type == NONE; c = c.getSuperclass()) {
+				for (MinecartManiaEventType t : values()) {
+					if (t.eventClass == c) {
+						type = t;
+						break;
+					}
+				}
+			}
+			types.put(clazz, type);
+		}
+		return type == NONE ? null : (MinecartManiaEventType)type;
+	}
+}
@@ -1,10 +1,15 @@
 package com.afforess.minecartmaniacore.event;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.bukkit.event.CustomEventListener;
 import org.bukkit.event.Event;
 import org.bukkit.event.Listener;
 
 
 public class MinecartManiaListener extends CustomEventListener implements Listener{
+	//The handled event types of each listener class, found once by reflection
+	private static final ConcurrentHashMap<Class<?>, MinecartManiaEventType[]> handledTypes = new ConcurrentHashMap<Class<?>, MinecartManiaEventType[]>();
 
 	public MinecartManiaListener() {
 		
@@ -29,6 +34,15 @@ public class MinecartManiaListener extends CustomEventListener implements Listen
 		
 	}
 	
+	/**
+     * Called once each second with all minecarts, or each tick with a shard of the minecarts if the batch time event is sharded
+     * 
+     * @param event
+     */
+	public void onMinecartBatchTimeEvent(MinecartBatchTimeEvent event) {
+		
+	}
+	
 	/**
      * Called when a minecart that was not moving last tick began moving this tick
      * 
@@ -140,52 +154,56 @@ public class MinecartManiaListener extends CustomEventListener implements Listen
 	}
 	
 	/**
-     * Avoid using.
+	 * Returns the event types this listener handles, used when it is registered with the MinecartManiaEventBus.
+	 * By default these are the types whose handler method is overridden, or every type if onCustomEvent is overridden.
+	 * The types are found once for each listener class, and the same array is returned after that, so it must not be modified.
+	 * Override this to choose the types directly.
+	 * 
+	 * @return the event types to register for
+	 */
+	public MinecartManiaEventType[] getEventTypes() {
+		MinecartManiaEventType[] types = handledTypes.get(getClass());
+		if (types == null) {
+			if (overridesCustomEvent()) {
+				types = MinecartManiaEventType.values();
+			}
+			else {
+				ArrayList<MinecartManiaEventType> handled = new ArrayList<MinecartManiaEventType>();
+				for (MinecartManiaEventType type : MinecartManiaEventType.values()) {
+					if (type.isHandledBy(this)) {
+						handled.add(type);
+					}
+				}
+				types = handled.toArray(new MinecartManiaEventType[handled.size()]);
+			}
+			handledTypes.put(getClass(), types);
+		}
+		return types;
+	}
+	
+	/**
+     * Avoid using. Called by Bukkit for listeners registered with Bukkit as custom event listeners.
+     * Prefer registering with the MinecartManiaEventBus, which only calls a listener for the events it handles.
      * 
      * @param event
      */
 	public void onCustomEvent(Event event) {
-		if (event instanceof MinecartActionEvent) {
-			onMinecartActionEvent((MinecartActionEvent)event);
-		}
-		else if (event instanceof MinecartTimeEvent) {
-			onMinecartTimeEvent((MinecartTimeEvent)event);
+		MinecartManiaEventType type = MinecartManiaEventType.getType(event);
+		if (type != null) {
+			type.dispatch(this, event);
 		}
-		else if (event instanceof MinecartIntersectionEvent) {
-			onMinecartIntersectionEvent((MinecartIntersectionEvent)event);
-		}
-		else if (event instanceof MinecartMotionStartEvent) {
-			onMinecartMotionStartEvent((MinecartMotionStartEvent)event);
-		}
-		else if (event instanceof MinecartMotionStopEvent) {
-			onMinecartMotionStopEvent((MinecartMotionStopEvent)event);
-		}
-		else if (event instanceof ChestPoweredEvent) {
-			onChestPoweredEvent((ChestPoweredEvent)event);
-		}
-		else if (event instanceof MinecartManiaMinecartDestroyedEvent) {
-			onMinecartManiaMinecartDestroyedEvent((MinecartManiaMinecartDestroyedEvent)event);
-		}
-		else if (event instanceof MinecartLaunchedEvent) {
-			onMinecartLaunchedEvent((MinecartLaunchedEvent)event);
-		}
-		else if (event instanceof ChestSpawnMinecartEvent) {
-			onChestSpawnMinecartEvent((ChestSpawnMinecartEvent)event);
-		}
-		else if (event instanceof MinecartNearEntityEvent) {
-			onMinecartNearEntityEvent((MinecartNearEntityEvent)event);
-		}
-		else if (event instanceof MinecartManiaMinecartCreatedEvent) {
-			onMinecartManiaMinecartCreatedEvent((MinecartManiaMinecartCreatedEvent)event);
-		}
-		else if (event instanceof MinecartClickedEvent) {
-			onMinecartClickedEvent((MinecartClickedEvent)event);
-		}
-		else if (event instanceof MinecartBoostEvent) {
-			onMinecartBoostedEvent((MinecartBoostEvent)event);
+	}
+	
+	/**
+	 * Returns true if this listener overrides onCustomEvent, and so may handle any event, including ones it has no handler method for
+	 */
+	boolean overridesCustomEvent() {
+		try {
+			return getClass().getMethod("onCustomEvent", Event.class).getDeclaringClass() != MinecartManiaListener.class;
 		}
-		else if (event instanceof MinecartBrakeEvent) {
-			onMinecartBrakedEvent((MinecartBrakeEvent)event);
+		catch (NoSuchMethodException e) {
+			e.printStackTrace();
+			return false;
 		}
 	}
 
@@ -2,6 +2,7 @@ package com.afforess.minecartmaniacore.event;
 
 import java.util.Calendar;
 
+import com.afforess.minecartmaniacore.MinecartManiaClock;
 import com.afforess.minecartmaniacore.MinecartManiaMinecart;
 
 	public class MinecartTimeEvent extends org.bukkit.event.Event {
@@ -10,25 +11,97 @@ import com.afforess.minecartmaniacore.MinecartManiaMinecart;
 		 */
 		private static final long serialVersionUID = 5065969344934650992L;
 	private MinecartManiaMinecart minecart;	
-	private Calendar oldCalendar;
-	private Calendar currentCalendar;
-	public MinecartTimeEvent(MinecartManiaMinecart cart, Calendar oldCal, Calendar newCal) {
+	private long oldSecond;
+	private long currentSecond;
+	private long tick;
+	private long time;
+	private Calendar oldCalendar = null;
+	private Calendar currentCalendar = null;
+	public MinecartTimeEvent(MinecartManiaMinecart cart, long oldSecond, long currentSecond) {
 		super("MinecartTimeEvent");
 		minecart = cart;
-		oldCalendar = oldCal;
-		currentCalendar = newCal;
+		this.oldSecond = oldSecond;
+		this.currentSecond = currentSecond;
+		tick = MinecartManiaClock.getTick();
+		time = System.currentTimeMillis();
 	}
-	
-	
+
+	/**
+	 ** Creates the event from the system times of two calendars. The old and current seconds are then seconds of system time, not of the MinecartManiaClock,
+	 ** so only the elapsed seconds compare with events created by the other constructor.
+	 ** @deprecated use MinecartTimeEvent(MinecartManiaMinecart, long, long)
+	 **/
+	@Deprecated
+	public MinecartTimeEvent(MinecartManiaMinecart cart, Calendar oldCalendar, Calendar currentCalendar) {
+		this(cart, oldCalendar.getTimeInMillis() / 1000L, currentCalendar.getTimeInMillis() / 1000L);
+		time = currentCalendar.getTimeInMillis();
+		this.oldCalendar = oldCalendar;
+		this.currentCalendar = currentCalendar;
+	}
+
+
 	public MinecartManiaMinecart getMinecart() {
 		return minecart;
 	}
-	
+
+	/**
+	 ** Returns the second of the MinecartManiaClock this minecart last saw
+	 **/
+	public long getOldSecond() {
+		return oldSecond;
+	}
+
+	/**
+	 ** Returns the current second of the MinecartManiaClock
+	 **/
+	public long getCurrentSecond() {
+		return currentSecond;
+	}
+
+	/**
+	 ** Returns the number of seconds that have passed since this minecart last saw the clock
+	 **/
+	public long getElapsedSeconds() {
+		return currentSecond - oldSecond;
+	}
+
+	/**
+	 ** Returns the server tick of the MinecartManiaClock this event was created in
+	 **/
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 ** Returns the system time, in milliseconds, this event was created at
+	 **/
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 ** Returns a calendar set to the system time this minecart last saw the clock, estimated from the elapsed seconds
+	 ** @deprecated use getOldSecond
+	 **/
+	@Deprecated
 	public Calendar getOldCalendar() {
+		if (oldCalendar == null) {
+			oldCalendar = Calendar.getInstance();
+			oldCalendar.setTimeInMillis(time - getElapsedSeconds() * 1000L);
+		}
 		return oldCalendar;
 	}
-	
+
+	/**
+	 ** Returns a calendar set to the system time this event was created at
+	 ** @deprecated use getCurrentSecond or getTime
+	 **/
+	@Deprecated
 	public Calendar getCurrentCalendar() {
+		if (currentCalendar == null) {
+			currentCalendar = Calendar.getInstance();
+			currentCalendar.setTimeInMillis(time);
+		}
 		return currentCalendar;
 	}
 }
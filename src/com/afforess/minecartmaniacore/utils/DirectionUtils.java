@@ -122,6 +122,18 @@ public abstract class DirectionUtils {
 		 return CompassDirection.NO_DIRECTION;
 	 }
 	 
+	 public static int getOffsetX(CompassDirection dir) {
+		 if (dir == CompassDirection.NORTH) return -1;
+		 if (dir == CompassDirection.SOUTH) return 1;
+		 return 0;
+	 }
+	 
+	 public static int getOffsetZ(CompassDirection dir) {
+		 if (dir == CompassDirection.EAST) return -1;
+		 if (dir == CompassDirection.WEST) return 1;
+		 return 0;
+	 }
+	 
 	 public static Block getBlockTypeAhead(World w, CompassDirection efacingDir, int x, int y, int z) {
 			if (efacingDir == CompassDirection.NORTH) return MinecartManiaWorld.getBlockAt(w, x-1, y, z);
 			if (efacingDir == CompassDirection.EAST) return MinecartManiaWorld.getBlockAt(w, x, y, z-1);
@@ -130,53 +142,20 @@ public abstract class DirectionUtils {
 			return null;
 		}
 	 
+	 /**
+	  * Returns the data of the flat rail that turns a minecart moving in the facing direction to the override direction, or -1 if there is none
+	  * @param eOverrideDir direction to leave in
+	  * @param eFacingDir direction the minecart is moving
+	  * @return rail data
+	  */
 	 public static int getMinetrackRailDataForDirection(CompassDirection eOverrideDir, CompassDirection eFacingDir)
 	 {
-		 if (eFacingDir == CompassDirection.NORTH) {
-			 if (eOverrideDir == CompassDirection.EAST) {
-				 return 9;
-			 }
-			 if (eOverrideDir == CompassDirection.NORTH) {
-				 return 1;
-			 }
-			 if (eOverrideDir == CompassDirection.WEST) {
-				 return 6;
-			 }
-		 }
-		 if (eFacingDir == CompassDirection.EAST) {
-			 if (eOverrideDir == CompassDirection.EAST) {
-				 return 0;
-			 }
-			 if (eOverrideDir == CompassDirection.NORTH) {
-				 return 7;
-			 }
-			 if (eOverrideDir == CompassDirection.SOUTH) {
-				 return 6;
-			 }
-		 }
-		 if (eFacingDir == CompassDirection.WEST) {
-			 if (eOverrideDir == CompassDirection.WEST) {
-				 return 0;
-			 }
-			 if (eOverrideDir == CompassDirection.NORTH) {
-				 return 8;
-			 }
-			 if (eOverrideDir == CompassDirection.SOUTH) {
-				 return 9;
-			 }
-		 }
-		 if (eFacingDir == CompassDirection.SOUTH) {
-			 if (eOverrideDir == CompassDirection.WEST) {
-				 return 7;
-			 }
-			 if (eOverrideDir == CompassDirection.EAST) {
-				 return 8;
-			 }
-			 if (eOverrideDir == CompassDirection.SOUTH) {
-				 return 1;
-			 }
+		 int entry = RailShape.getOpposite(RailShape.toSide(eFacingDir));
+		 int exit = RailShape.toSide(eOverrideDir);
+		 if (entry == 0 || exit == 0 || entry == exit) {
+			 return -1;
 		 }
-		 return -1;
+		 return RailShape.getShape(entry | exit);
 	 }
 
 	public static CompassDirection getOppositeDirection(
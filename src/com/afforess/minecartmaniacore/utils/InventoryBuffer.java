@@ -0,0 +1,189 @@
+package com.afforess.minecartmaniacore.utils;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.afforess.minecartmaniacore.ItemFilter;
+import com.afforess.minecartmaniacore.MinecartManiaInventory;
+
+/**
+ * A working copy of the contents of an inventory. The contents are read once, changed here, and only written back to the inventory
+ * with writeTo, so a failed operation leaves the inventory untouched.
+ * @author Afforess
+ */
+public class InventoryBuffer {
+	public static final int MAX_STACK_SIZE = 64;
+
+	private final ItemStack[] original;
+	private final int[] types;
+	private final int[] amounts;
+	private final short[] durabilities;
+	private final boolean[] changed;
+	private boolean modified = false;
+
+	/**
+	 ** Reads the contents of the given inventory
+	 **/
+	public InventoryBuffer(MinecartManiaInventory inventory) {
+		this(inventory.getContents());
+	}
+
+	public InventoryBuffer(ItemStack[] contents) {
+		original = contents;
+		types = new int[contents.length];
+		amounts = new int[contents.length];
+		durabilities = new short[contents.length];
+		changed = new boolean[contents.length];
+		for (int i = 0; i < contents.length; i++) {
+			ItemStack item = contents[i];
+			if (item != null && item.getTypeId() != Material.AIR.getId() && item.getAmount() > 0) {
+				types[i] = item.getTypeId();
+				amounts[i] = item.getAmount();
+				durabilities[i] = item.getDurability();
+			}
+		}
+	}
+
+	public int size() {
+		return types.length;
+	}
+
+	public boolean isEmpty(int slot) {
+		return amounts[slot] == 0;
+	}
+
+	public int getType(int slot) {
+		return types[slot];
+	}
+
+	public int getAmount(int slot) {
+		return amounts[slot];
+	}
+
+	public short getDurability(int slot) {
+		return durabilities[slot];
+	}
+
+	/**
+	 ** Returns the item stack in the given slot, as it was read from the inventory, or null if the slot was empty
+	 **/
+	public ItemStack getOriginal(int slot) {
+		ItemStack item = original[slot];
+		return item == null || item.getTypeId() == Material.AIR.getId() ? null : item;
+	}
+
+	/**
+	 ** Returns true if any slot has been changed
+	 **/
+	public boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 ** Adds the given amount of an item, merging with stacks of the same type and durability before using empty slots.
+	 ** Returns the amount that did not fit.
+	 **/
+	public int add(int type, int amount, short durability) {
+		if (type == Material.AIR.getId()) {
+			return amount;
+		}
+		for (int i = 0; i < types.length && amount > 0; i++) {
+			if (amounts[i] > 0 && amounts[i] < MAX_STACK_SIZE && types[i] == type && durabilities[i] == durability) {
+				int added = Math.min(amount, MAX_STACK_SIZE - amounts[i]);
+				set(i, type, amounts[i] + added, durability);
+				amount -= added;
+			}
+		}
+		for (int i = 0; i < types.length && amount > 0; i++) {
+			if (amounts[i] == 0) {
+				int added = Math.min(amount, MAX_STACK_SIZE);
+				set(i, type, added, durability);
+				amount -= added;
+			}
+		}
+		return amount;
+	}
+
+	/**
+	 ** Removes up to the given amount of an item. If the durability is -1, any durability matches.
+	 ** Returns the amount that could not be removed.
+	 **/
+	public int remove(int type, int amount, short durability) {
+		for (int i = 0; i < types.length && amount > 0; i++) {
+			if (amounts[i] > 0 && types[i] == type && (durability == -1 || durabilities[i] == durability)) {
+				int removed = Math.min(amount, amounts[i]);
+				set(i, type, amounts[i] - removed, durabilities[i]);
+				amount -= removed;
+			}
+		}
+		return amount;
+	}
+
+	/**
+	 ** Empties the given slot
+	 **/
+	public void clear(int slot) {
+		if (amounts[slot] > 0) {
+			set(slot, 0, 0, (short)0);
+		}
+	}
+
+	/**
+	 ** Moves every stack accepted by the filter into the other buffer, as far as it fits. Returns the number of items moved.
+	 **/
+	public int transferTo(InventoryBuffer target, ItemFilter filter) {
+		int moved = 0;
+		for (int i = 0; i < types.length; i++) {
+			if (amounts[i] == 0) {
+				continue;
+			}
+			ItemStack item = changed[i] ? new ItemStack(types[i], amounts[i], durabilities[i]) : original[i];
+			if (filter != null && !filter.accept(item)) {
+				continue;
+			}
+			int left = target.add(types[i], amounts[i], durabilities[i]);
+			if (left != amounts[i]) {
+				moved += amounts[i] - left;
+				set(i, types[i], left, durabilities[i]);
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 ** Builds the contents of the inventory from this buffer. Unchanged slots keep their original item stacks.
+	 **/
+	public ItemStack[] toContents() {
+		ItemStack[] contents = new ItemStack[types.length];
+		for (int i = 0; i < contents.length; i++) {
+			if (!changed[i]) {
+				contents[i] = original[i];
+			}
+			else if (amounts[i] > 0) {
+				contents[i] = new ItemStack(types[i], amounts[i], durabilities[i]);
+			}
+		}
+		return contents;
+	}
+
+	/**
+	 ** Writes this buffer back to the given inventory, if anything changed
+	 **/
+	public void writeTo(MinecartManiaInventory inventory) {
+		if (modified) {
+			inventory.setContents(toContents());
+		}
+	}
+
+	private void set(int slot, int type, int amount, short durability) {
+		if (amount == 0) {
+			type = 0;
+			durability = 0;
+		}
+		types[slot] = type;
+		amounts[slot] = amount;
+		durabilities[slot] = durability;
+		changed[slot] = true;
+		modified = true;
+	}
+}
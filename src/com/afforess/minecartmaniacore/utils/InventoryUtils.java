@@ -0,0 +1,192 @@
+package com.afforess.minecartmaniacore.utils;
+
+import java.util.ArrayList;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.afforess.minecartmaniacore.ItemFilter;
+import com.afforess.minecartmaniacore.MinecartManiaChest;
+import com.afforess.minecartmaniacore.MinecartManiaDoubleChest;
+import com.afforess.minecartmaniacore.MinecartManiaInventory;
+
+/**
+ * Shared implementations of the item operations of MinecartManiaInventory.
+ * Each operation reads the contents of an inventory once, and writes them back once, only if the whole operation succeeds.
+ * @author Afforess
+ */
+public class InventoryUtils {
+
+	/**
+	 * Attempts to add the given amount of an item to the inventory. If it fails, the inventory is not changed.
+	 * @param inventory to add to
+	 * @param type to add
+	 * @param amount to add
+	 * @param durability of the item to add
+	 * @return true if all of the items were added
+	 */
+	public static boolean addItem(MinecartManiaInventory inventory, int type, int amount, short durability) {
+		if (type == Material.AIR.getId()) {
+			return false;
+		}
+		InventoryBuffer buffer = new InventoryBuffer(inventory);
+		if (buffer.add(type, amount, durability) > 0) {
+			return false;
+		}
+		buffer.writeTo(inventory);
+		return true;
+	}
+
+	/**
+	 * Attempts to add all of the given item stacks to the inventory. If any of them do not fit, the inventory is not changed.
+	 * Null and air stacks are skipped.
+	 * @param inventory to add to
+	 * @param items to add
+	 * @return true if all of the items were added
+	 */
+	public static boolean addAll(MinecartManiaInventory inventory, ItemStack[] items) {
+		InventoryBuffer buffer = new InventoryBuffer(inventory);
+		if (!addAll(buffer, items)) {
+			return false;
+		}
+		buffer.writeTo(inventory);
+		return true;
+	}
+
+	/**
+	 * Adds all of the given item stacks to the buffer, and returns false if any of them did not fit
+	 */
+	public static boolean addAll(InventoryBuffer buffer, ItemStack[] items) {
+		for (ItemStack item : items) {
+			if (item == null || item.getTypeId() == Material.AIR.getId()) {
+				continue;
+			}
+			if (buffer.add(item.getTypeId(), item.getAmount(), item.getDurability()) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Attempts to remove the given amount of an item from the inventory. If it fails, the inventory is not changed.
+	 * If the durability is -1, any durability matches.
+	 * @param inventory to remove from
+	 * @param type to remove
+	 * @param amount to remove
+	 * @param durability of the item to remove
+	 * @return true if all of the items were removed
+	 */
+	public static boolean removeItem(MinecartManiaInventory inventory, int type, int amount, short durability) {
+		InventoryBuffer buffer = new InventoryBuffer(inventory);
+		if (buffer.remove(type, amount, durability) > 0) {
+			return false;
+		}
+		buffer.writeTo(inventory);
+		return true;
+	}
+
+	/**
+	 * Removes every item stack accepted by the filter from the inventory
+	 * @param inventory to remove from
+	 * @param filter selecting the stacks to remove, or null for all stacks
+	 * @return the item stacks removed
+	 */
+	public static ItemStack[] removeAll(MinecartManiaInventory inventory, ItemFilter filter) {
+		InventoryBuffer buffer = new InventoryBuffer(inventory);
+		ArrayList<ItemStack> removed = new ArrayList<ItemStack>();
+		for (int i = 0; i < buffer.size(); i++) {
+			ItemStack item = buffer.getOriginal(i);
+			if (item != null && (filter == null || filter.accept(item))) {
+				removed.add(new ItemStack(item.getTypeId(), item.getAmount(), item.getDurability()));
+				buffer.clear(i);
+			}
+		}
+		buffer.writeTo(inventory);
+		return removed.toArray(new ItemStack[removed.size()]);
+	}
+
+	/**
+	 * Moves every item stack accepted by the filter from one inventory to another, as far as they fit.
+	 * Each inventory is read once and written once, so inventories that share slots, such as a double chest and one of its halves,
+	 * are not transferred between, since the second write would undo the first.
+	 * @param from the inventory to take items from
+	 * @param to the inventory to put items in
+	 * @param filter selecting the stacks to move, or null for all stacks
+	 * @return the number of items moved
+	 */
+	public static int transfer(MinecartManiaInventory from, MinecartManiaInventory to, ItemFilter filter) {
+		if (overlaps(from, to)) {
+			return 0;
+		}
+		InventoryBuffer source = new InventoryBuffer(from);
+		InventoryBuffer target = new InventoryBuffer(to);
+		int moved = source.transferTo(target, filter);
+		if (moved > 0) {
+			target.writeTo(to);
+			source.writeTo(from);
+		}
+		return moved;
+	}
+
+	/**
+	 * Returns the first slot of the contents holding the given type id and durability, or -1 if none do. If the durability is -1, any durability matches,
+	 * and items stored with a durability of -1 match any durability.
+	 */
+	public static int first(ItemStack[] contents, int type, short durability) {
+		for (int i = 0; i < contents.length; i++) {
+			ItemStack item = contents[i];
+			if (item != null && item.getTypeId() == type && (durability == -1 || item.getDurability() == -1 || item.getDurability() == durability)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first empty slot of the contents, or -1 if there is none
+	 */
+	public static int firstEmpty(ItemStack[] contents) {
+		for (int i = 0; i < contents.length; i++) {
+			ItemStack item = contents[i];
+			if (item == null || item.getTypeId() == Material.AIR.getId() || item.getAmount() <= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if the two inventories share any slots, either because they are the same inventory,
+	 * or because one or both are double chests sharing a chest
+	 */
+	public static boolean overlaps(MinecartManiaInventory a, MinecartManiaInventory b) {
+		if (a == b) {
+			return true;
+		}
+		for (MinecartManiaInventory partA : getParts(a)) {
+			for (MinecartManiaInventory partB : getParts(b)) {
+				if (partA == partB) {
+					return true;
+				}
+				if (partA instanceof MinecartManiaChest && partB instanceof MinecartManiaChest) {
+					MinecartManiaChest chestA = (MinecartManiaChest)partA;
+					MinecartManiaChest chestB = (MinecartManiaChest)partB;
+					if (chestA.getX() == chestB.getX() && chestA.getY() == chestB.getY() && chestA.getZ() == chestB.getZ()
+							&& chestA.getWorld().getName().equals(chestB.getWorld().getName())) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static MinecartManiaInventory[] getParts(MinecartManiaInventory inventory) {
+		if (inventory instanceof MinecartManiaDoubleChest) {
+			MinecartManiaDoubleChest doubleChest = (MinecartManiaDoubleChest)inventory;
+			return new MinecartManiaInventory[] { doubleChest.getFirstChest(), doubleChest.getSecondChest() };
+		}
+		return new MinecartManiaInventory[] { inventory };
+	}
+}
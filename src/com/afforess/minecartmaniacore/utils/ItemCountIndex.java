@@ -0,0 +1,180 @@
+package com.afforess.minecartmaniacore.utils;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import com.afforess.minecartmaniacore.MinecartManiaClock;
+
+/**
+ * A summary of the contents of an inventory, built from a single read of the contents. It holds the total count and the slots of
+ * each item type and durability, so contains, first and capacity checks are hash lookups instead of scans over every slot.
+ * An index is a snapshot. Inventories discard their index when they are changed, and an index is never used past the server tick it was built in,
+ * so changes made outside of Minecart Mania (like a player moving items by hand) are seen by the next tick. Within a tick it may be stale,
+ * so it must not be used to choose slots to write to. The first and firstEmpty methods of the inventories read the live contents instead.
+ * @author Afforess
+ */
+public class ItemCountIndex {
+	private final HashMap<Integer, Entry> items = new HashMap<Integer, Entry>();
+	private final HashMap<Integer, Entry> types = new HashMap<Integer, Entry>();
+	private final int size;
+	private final int emptySlots;
+	private final int firstEmpty;
+	private final long tick;
+
+	public ItemCountIndex(ItemStack[] contents) {
+		tick = MinecartManiaClock.getTick();
+		size = contents.length;
+		int empty = 0;
+		int first = -1;
+		for (int i = 0; i < contents.length; i++) {
+			ItemStack item = contents[i];
+			if (item == null || item.getTypeId() == Material.AIR.getId() || item.getAmount() <= 0) {
+				empty++;
+				if (first == -1) {
+					first = i;
+				}
+				continue;
+			}
+			getEntry(items, key(item.getTypeId(), item.getDurability())).add(i, item.getAmount());
+			getEntry(types, Integer.valueOf(item.getTypeId())).add(i, item.getAmount());
+		}
+		emptySlots = empty;
+		firstEmpty = first;
+	}
+
+	/**
+	 ** Joins the indexes of two inventories, as one inventory with the slots of the second following the slots of the first
+	 **/
+	public ItemCountIndex(ItemCountIndex first, ItemCountIndex second) {
+		tick = Math.min(first.tick, second.tick);
+		size = first.size + second.size;
+		emptySlots = first.emptySlots + second.emptySlots;
+		firstEmpty = first.firstEmpty != -1 ? first.firstEmpty : (second.firstEmpty != -1 ? second.firstEmpty + first.size : -1);
+		merge(items, first.items, 0);
+		merge(items, second.items, first.size);
+		merge(types, first.types, 0);
+		merge(types, second.types, first.size);
+	}
+
+	private static void merge(HashMap<Integer, Entry> to, HashMap<Integer, Entry> from, int offset) {
+		for (Map.Entry<Integer, Entry> e : from.entrySet()) {
+			Entry entry = getEntry(to, e.getKey());
+			Entry other = e.getValue();
+			if (entry.first == -1) {
+				entry.first = other.first + offset;
+			}
+			entry.count += other.count;
+			for (int slot = other.slots.nextSetBit(0); slot >= 0; slot = other.slots.nextSetBit(slot + 1)) {
+				entry.slots.set(slot + offset);
+			}
+		}
+	}
+
+	/**
+	 ** Returns false if this index was built in an earlier server tick, and should not be used any more
+	 **/
+	public boolean isCurrent() {
+		return tick == MinecartManiaClock.getTick();
+	}
+
+	/**
+	 ** Returns the first slot containing the given type id and durability, or -1 if none contain it.
+	 ** If the durability is -1, any durability matches.
+	 **/
+	public int first(int type, short durability) {
+		if (durability == -1) {
+			Entry entry = types.get(Integer.valueOf(type));
+			return entry == null ? -1 : entry.first;
+		}
+		Entry entry = items.get(key(type, durability));
+		//items stored with a durability of -1 match any durability
+		Entry any = items.get(key(type, (short)-1));
+		if (entry == null) {
+			return any == null ? -1 : any.first;
+		}
+		return any == null ? entry.first : Math.min(entry.first, any.first);
+	}
+
+	public boolean contains(int type, short durability) {
+		return first(type, durability) != -1;
+	}
+
+	/**
+	 ** Returns the total number of items of the given type id and durability. If the durability is -1, any durability matches.
+	 **/
+	public int count(int type, short durability) {
+		Entry entry = durability == -1 ? types.get(Integer.valueOf(type)) : items.get(key(type, durability));
+		return entry == null ? 0 : entry.count;
+	}
+
+	/**
+	 ** Returns the slots containing the given type id and durability. If the durability is -1, any durability matches.
+	 **/
+	public BitSet getSlots(int type, short durability) {
+		Entry entry = durability == -1 ? types.get(Integer.valueOf(type)) : items.get(key(type, durability));
+		return entry == null ? new BitSet() : (BitSet)entry.slots.clone();
+	}
+
+	/**
+	 ** Returns the number of items of the given type id and durability that can be added, filling partial stacks and empty slots
+	 **/
+	public int getSpace(int type, short durability) {
+		Entry entry = items.get(key(type, durability));
+		int partial = entry == null ? 0 : entry.slots.cardinality() * InventoryBuffer.MAX_STACK_SIZE - entry.count;
+		return partial + emptySlots * InventoryBuffer.MAX_STACK_SIZE;
+	}
+
+	/**
+	 ** Returns true if the given amount of the given type id and durability can be added
+	 **/
+	public boolean canFit(int type, int amount, short durability) {
+		return getSpace(type, durability) >= amount;
+	}
+
+	public int firstEmpty() {
+		return firstEmpty;
+	}
+
+	public int getEmptySlots() {
+		return emptySlots;
+	}
+
+	public boolean isEmpty() {
+		return emptySlots == size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static Integer key(int type, short durability) {
+		return Integer.valueOf((type << 16) | (durability & 0xFFFF));
+	}
+
+	private static Entry getEntry(HashMap<Integer, Entry> map, Integer key) {
+		Entry entry = map.get(key);
+		if (entry == null) {
+			entry = new Entry();
+			map.put(key, entry);
+		}
+		return entry;
+	}
+
+	private static class Entry {
+		int count = 0;
+		int first = -1;
+		final BitSet slots = new BitSet();
+
+		void add(int slot, int amount) {
+			if (first == -1) {
+				first = slot;
+			}
+			count += amount;
+			slots.set(slot);
+		}
+	}
+}
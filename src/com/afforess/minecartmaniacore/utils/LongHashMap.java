@@ -0,0 +1,145 @@
+package com.afforess.minecartmaniacore.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A map from primitive long keys to values, that never boxes its keys. Int keys, such as entity ids, are widened to long.
+ * Reads never lock, and see a consistent copy of the map. Writes copy the map, so it is best suited to maps that are read far more often than they change.
+ * @author Afforess
+ */
+public class LongHashMap<V> {
+	private static final int FREE = 0;
+	private static final int USED = 1;
+
+	private static final class Table<V> {
+		final long[] keys;
+		final Object[] values;
+		final byte[] states;
+		final int size;
+		volatile List<V> valueList = null;
+
+		Table(int capacity, int size) {
+			this.keys = new long[capacity];
+			this.values = new Object[capacity];
+			this.states = new byte[capacity];
+			this.size = size;
+		}
+	}
+
+	private volatile Table<V> table = new Table<V>(16, 0);
+
+	/**
+	 ** Returns the value for the given key, or null if there is none
+	 **/
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		Table<V> t = table;
+		int mask = t.keys.length - 1;
+		for (int i = hash(key) & mask; t.states[i] != FREE; i = (i + 1) & mask) {
+			if (t.keys[i] == key) {
+				return (V)t.values[i];
+			}
+		}
+		return null;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	public int size() {
+		return table.size;
+	}
+
+	/**
+	 ** Stores the value for the given key, and returns the previous value, or null if there was none
+	 **/
+	public synchronized V put(long key, V value) {
+		Table<V> t = table;
+		V previous = get(key);
+		int size = previous == null ? t.size + 1 : t.size;
+		int capacity = t.keys.length;
+		while (size * 2 > capacity) {
+			capacity *= 2;
+		}
+		Table<V> copy = new Table<V>(capacity, size);
+		copyInto(t, copy, key, false);
+		insert(copy, key, value);
+		table = copy;
+		return previous;
+	}
+
+	/**
+	 ** Stores the value for the given key if there is none yet. Returns the value already stored, or null if the given value was stored.
+	 **/
+	public synchronized V putIfAbsent(long key, V value) {
+		V previous = get(key);
+		if (previous == null) {
+			put(key, value);
+		}
+		return previous;
+	}
+
+	/**
+	 ** Removes the value for the given key, and returns it, or null if there was none
+	 **/
+	public synchronized V remove(long key) {
+		Table<V> t = table;
+		V previous = get(key);
+		if (previous == null) {
+			return null;
+		}
+		Table<V> copy = new Table<V>(t.keys.length, t.size - 1);
+		copyInto(t, copy, key, true);
+		table = copy;
+		return previous;
+	}
+
+	/**
+	 ** Returns a read only list of the values in this map, at the time of the call.
+	 ** The list is shared until the map next changes, so calling this repeatedly does not allocate.
+	 **/
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		Table<V> t = table;
+		List<V> list = t.valueList;
+		if (list == null) {
+			ArrayList<V> values = new ArrayList<V>(t.size);
+			for (int i = 0; i < t.keys.length; i++) {
+				if (t.states[i] == USED) {
+					values.add((V)t.values[i]);
+				}
+			}
+			list = Collections.unmodifiableList(values);
+			t.valueList = list;
+		}
+		return list;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> void copyInto(Table<V> from, Table<V> to, long key, boolean skipKey) {
+		for (int i = 0; i < from.keys.length; i++) {
+			if (from.states[i] == USED && !(skipKey && from.keys[i] == key)) {
+				insert(to, from.keys[i], (V)from.values[i]);
+			}
+		}
+	}
+
+	private static <V> void insert(Table<V> t, long key, V value) {
+		int mask = t.keys.length - 1;
+		int i = hash(key) & mask;
+		while (t.states[i] != FREE && t.keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		t.keys[i] = key;
+		t.values[i] = value;
+		t.states[i] = USED;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+}
@@ -7,10 +7,52 @@ public class MathUtils {
 		else if (value < min) value = min;
 		return value;
 	}
-	
+
 	public static int range(int value, int max, int min){
 		if (value > max) value = max;
 		else if (value < min) value = min;
 		return value;
 	}
+
+	/**
+	 * Packs the given block coordinates into a single long, suitable for use as a map key.
+	 * x and z must be within +/- 33,554,432, y within +/- 2048.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param z coordinate
+	 * @return the packed block position
+	 */
+	public static long packBlockPosition(int x, int y, int z) {
+		return ((long)(x & 0x3FFFFFF) << 38) | ((long)(z & 0x3FFFFFF) << 12) | (long)(y & 0xFFF);
+	}
+
+	public static int unpackBlockX(long position) {
+		return (int)(position >> 38);
+	}
+
+	public static int unpackBlockY(long position) {
+		return (int)(position << 52 >> 52);
+	}
+
+	public static int unpackBlockZ(long position) {
+		return (int)(position << 26 >> 38);
+	}
+
+	/**
+	 * Packs the given chunk coordinates into a single long, suitable for use as a map key.
+	 * @param x chunk coordinate
+	 * @param z chunk coordinate
+	 * @return the packed chunk position
+	 */
+	public static long packChunkPosition(int x, int z) {
+		return ((long)x << 32) | (z & 0xFFFFFFFFL);
+	}
+
+	public static int unpackChunkX(long position) {
+		return (int)(position >> 32);
+	}
+
+	public static int unpackChunkZ(long position) {
+		return (int)position;
+	}
 }
@@ -0,0 +1,212 @@
+package com.afforess.minecartmaniacore.utils;
+
+import org.bukkit.World;
+
+import com.afforess.minecartmaniacore.Item;
+import com.afforess.minecartmaniacore.MinecartManiaWorld;
+import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
+
+/**
+ * Lookup tables for the 10 shapes of rail (data values 0 - 9).
+ * Directions are stored as bits, so the sides a rail connects to, or the sides of a rail that have track leading into them, are a single int mask.
+ * @author Afforess
+ */
+public final class RailShape {
+	public static final int NORTH = 1;
+	public static final int EAST = 2;
+	public static final int SOUTH = 4;
+	public static final int WEST = 8;
+
+	private static final int[] CONNECTIONS = new int[16];
+	private static final int[] ASCENDING = new int[16];
+	private static final int[] SHAPE_FOR_CONNECTIONS = new int[16];
+	//Indexed by (data << 4) | neighbour mask
+	private static final boolean[] INTERSECTION = new boolean[256];
+	private static final int[] BIT_COUNT = new int[16];
+
+	static {
+		CONNECTIONS[0] = EAST | WEST;
+		CONNECTIONS[1] = NORTH | SOUTH;
+		CONNECTIONS[2] = NORTH | SOUTH;
+		CONNECTIONS[3] = NORTH | SOUTH;
+		CONNECTIONS[4] = EAST | WEST;
+		CONNECTIONS[5] = EAST | WEST;
+		CONNECTIONS[6] = SOUTH | WEST;
+		CONNECTIONS[7] = NORTH | WEST;
+		CONNECTIONS[8] = NORTH | EAST;
+		CONNECTIONS[9] = SOUTH | EAST;
+
+		ASCENDING[2] = SOUTH;
+		ASCENDING[3] = NORTH;
+		ASCENDING[4] = EAST;
+		ASCENDING[5] = WEST;
+
+		for (int mask = 0; mask < 16; mask++) {
+			SHAPE_FOR_CONNECTIONS[mask] = -1;
+			BIT_COUNT[mask] = Integer.bitCount(mask);
+		}
+		for (int data = 9; data >= 0; data--) {
+			if (ASCENDING[data] == 0) {
+				SHAPE_FOR_CONNECTIONS[CONNECTIONS[data]] = data;
+			}
+		}
+
+		for (int data = 0; data < 16; data++) {
+			for (int mask = 0; mask < 16; mask++) {
+				boolean intersection = false;
+				if (isStraight(data)) {
+					intersection = BIT_COUNT[mask] > 2;
+				}
+				else if (isCurve(data)) {
+					intersection = (mask & CONNECTIONS[data]) == CONNECTIONS[data] && BIT_COUNT[mask] > 2;
+				}
+				INTERSECTION[(data << 4) | mask] = intersection;
+			}
+		}
+	}
+
+	private RailShape() {
+	}
+
+	/**
+	 ** Returns the sides a rail with the given data connects to
+	 **/
+	public static int getConnections(int data) {
+		return CONNECTIONS[data & 0xF];
+	}
+
+	/**
+	 ** Returns the side a sloped rail with the given data rises toward, or 0 if it is flat
+	 **/
+	public static int getAscending(int data) {
+		return ASCENDING[data & 0xF];
+	}
+
+	public static boolean connects(int data, int side) {
+		return (CONNECTIONS[data & 0xF] & side) != 0;
+	}
+
+	public static boolean isSlope(int data) {
+		return ASCENDING[data & 0xF] != 0;
+	}
+
+	public static boolean isCurve(int data) {
+		return data >= 6 && data <= 9;
+	}
+
+	public static boolean isStraight(int data) {
+		return data == 0 || data == 1;
+	}
+
+	/**
+	 ** Returns the side a minecart entering a rail with the given data from the given side leaves by, or 0 if the rail does not connect to that side
+	 **/
+	public static int getExit(int data, int entry) {
+		int connections = CONNECTIONS[data & 0xF];
+		if ((connections & entry) == 0) {
+			return 0;
+		}
+		return connections & ~entry;
+	}
+
+	/**
+	 ** Returns the data of the flat rail connecting the given sides, or -1 if there is none
+	 **/
+	public static int getShape(int connections) {
+		return SHAPE_FOR_CONNECTIONS[connections & 0xF];
+	}
+
+	/**
+	 ** Returns true if a rail with the given data is the center of an intersection
+	 ** @param the data of the rail
+	 ** @param the sides with straight track leading into the rail, see getNeighbourMask
+	 **/
+	public static boolean isIntersection(int data, int neighbours) {
+		return INTERSECTION[((data & 0xF) << 4) | (neighbours & 0xF)];
+	}
+
+	/**
+	 ** Returns the sides of the given block that have straight track leading into it, on the same level
+	 **/
+	public static int getNeighbourMask(World w, int x, int y, int z) {
+		int mask = 0;
+		if (isRailWithData(w, x - 1, y, z, 1)) mask |= NORTH;
+		if (isRailWithData(w, x, y, z - 1, 0)) mask |= EAST;
+		if (isRailWithData(w, x + 1, y, z, 1)) mask |= SOUTH;
+		if (isRailWithData(w, x, y, z + 1, 0)) mask |= WEST;
+		return mask;
+	}
+
+	private static boolean isRailWithData(World w, int x, int y, int z, int data) {
+		return MinecartManiaWorld.getBlockIdAt(w, x, y, z) == Item.RAILS.getId() && MinecartManiaWorld.getBlockData(w, x, y, z) == data;
+	}
+
+	/**
+	 ** Returns the y - coordinate of the rail connected to the given rail on the given side, or Integer.MIN_VALUE if there is none.
+	 ** The neighbouring rail may be one block higher if the given rail rises toward it, or one block lower if it rises toward the given rail.
+	 ** @param the world the rail is in
+	 ** @param the x - coordinate of the rail
+	 ** @param the y - coordinate of the rail
+	 ** @param the z - coordinate of the rail
+	 ** @param the data of the rail
+	 ** @param the side to look on
+	 **/
+	public static int getConnectedRailY(World w, int x, int y, int z, int data, int side) {
+		int nx = x + getOffsetX(side);
+		int nz = z + getOffsetZ(side);
+		int back = getOpposite(side);
+		int ny = y;
+		if (getAscending(data) == side) {
+			ny = y + 1;
+		}
+		else if (MinecartManiaWorld.getBlockIdAt(w, nx, y, nz) != Item.RAILS.getId()) {
+			ny = y - 1;
+		}
+		if (MinecartManiaWorld.getBlockIdAt(w, nx, ny, nz) != Item.RAILS.getId()) {
+			return Integer.MIN_VALUE;
+		}
+		int next = MinecartManiaWorld.getBlockData(w, nx, ny, nz);
+		if (ny < y && getAscending(next) != back) {
+			return Integer.MIN_VALUE;
+		}
+		if (!connects(next, back)) {
+			return Integer.MIN_VALUE;
+		}
+		return ny;
+	}
+
+	/**
+	 ** Returns the opposite side
+	 **/
+	public static int getOpposite(int side) {
+		return ((side << 2) | (side >> 2)) & 0xF;
+	}
+
+	public static int getOffsetX(int side) {
+		return side == NORTH ? -1 : side == SOUTH ? 1 : 0;
+	}
+
+	public static int getOffsetZ(int side) {
+		return side == EAST ? -1 : side == WEST ? 1 : 0;
+	}
+
+	public static int toSide(CompassDirection direction) {
+		switch (direction) {
+			case NORTH: return NORTH;
+			case EAST: return EAST;
+			case SOUTH: return SOUTH;
+			case WEST: return WEST;
+		}
+		return 0;
+	}
+
+	public static CompassDirection toDirection(int side) {
+		switch (side) {
+			case NORTH: return CompassDirection.NORTH;
+			case EAST: return CompassDirection.EAST;
+			case SOUTH: return CompassDirection.SOUTH;
+			case WEST: return CompassDirection.WEST;
+		}
+		return CompassDirection.NO_DIRECTION;
+	}
+}
@@ -7,12 +7,16 @@ import org.bukkit.World;
 import org.bukkit.block.Sign;
 
 import com.afforess.minecartmaniacore.MinecartManiaMinecart;
+import com.afforess.minecartmaniacore.MinecartManiaSign;
 import com.afforess.minecartmaniacore.MinecartManiaWorld;
 
 public class SignUtils {
 
 
 	public static Sign getSignAt(World w, int x, int y, int z) {
+		if (!MinecartManiaSign.isSign(MinecartManiaWorld.getBlockIdAt(w, x, y, z))) {
+			return null;
+		}
 		if (MinecartManiaWorld.getBlockAt(w, x, y, z).getState() instanceof Sign) {
 			return (Sign)MinecartManiaWorld.getBlockAt(w, x, y, z).getState();
 		}
@@ -29,19 +33,33 @@ public class SignUtils {
 
 	public static ArrayList<Sign> getAdjacentSignList(World w, int x, int y, int z, int range) {
 		ArrayList<Sign> signList = new ArrayList<Sign>();
-		for (int dx = -(range); dx <= range; dx++){
-			for (int dy = -(range); dy <= range; dy++){
-				for (int dz = -(range); dz <= range; dz++){
-					Sign sign = getSignAt(w, x+dx, y+dy, z+dz);
-					if (sign != null) {
-						signList.add(sign);
-					}
-				}
+		for (MinecartManiaSign cached : getAdjacentMinecartManiaSignList(w, x, y, z, range)) {
+			Sign sign = cached.getSign();
+			if (sign != null) {
+				cached.refresh(sign);
+				signList.add(sign);
 			}
 		}
 		return signList;
 	}
 
+	public static ArrayList<MinecartManiaSign> getAdjacentMinecartManiaSignList(MinecartManiaMinecart minecart, int range) {
+		return getAdjacentMinecartManiaSignList(minecart.getWorld(), minecart.getX(), minecart.getY()-1, minecart.getZ(), range);
+	}
+
+	/**
+	 * Returns the cached signs within range of the given location, in the same order getAdjacentSignList finds them.
+	 * @param w world to search
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param z coordinate
+	 * @param range to search
+	 * @return signs
+	 */
+	public static ArrayList<MinecartManiaSign> getAdjacentMinecartManiaSignList(World w, int x, int y, int z, int range) {
+		return MinecartManiaWorld.getMinecartManiaSignList(w, x - range, y - range, z - range, x + range, y + range, z + range);
+	}
+
 	public static ArrayList<Sign> getParallelSignList(MinecartManiaMinecart minecart) {
 		return getParallelSignList(minecart.minecart.getLocation());
 	}
@@ -0,0 +1,77 @@
+package com.afforess.minecartmaniacore.utils;
+
+import com.afforess.minecartmaniacore.utils.DirectionUtils.CompassDirection;
+
+/**
+ * The result of following track with MinecartUtils.walkTrack. A single path can be reused for several walks.
+ * @author Afforess
+ */
+public class TrackPath {
+	private boolean valid;
+	private int length;
+	private int x, y, z;
+	private CompassDirection direction = CompassDirection.NO_DIRECTION;
+
+	/**
+	 ** Returns true if the walk followed connected track for the full length requested
+	 **/
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 ** Returns the number of connected rails that were followed
+	 **/
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 ** Returns the x - coordinate of the last rail followed
+	 **/
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 ** Returns the y - coordinate of the last rail followed
+	 **/
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 ** Returns the z - coordinate of the last rail followed
+	 **/
+	public int getZ() {
+		return z;
+	}
+
+	/**
+	 ** Returns the direction of travel when leaving the last rail followed
+	 **/
+	public CompassDirection getDirection() {
+		return direction;
+	}
+
+	void reset(int x, int y, int z, CompassDirection direction) {
+		this.valid = false;
+		this.length = 0;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.direction = direction;
+	}
+
+	void step(int x, int y, int z, CompassDirection direction) {
+		this.length++;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.direction = direction;
+	}
+
+	void setValid(boolean valid) {
+		this.valid = valid;
+	}
+}